@@ -0,0 +1,61 @@
+package ru.practicum.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.compilation.Compilation;
+import ru.practicum.compilation.CollectionMapper;
+import ru.practicum.compilation.dto.CompilationDto;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подборка: CollectionMapper.returnCompilationDto с сортировкой событий и маппингом в EventShortDto, затем JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilationBenchmark {
+
+    @Param({"50"})
+    int events;
+
+    private ObjectMapper objectMapper;
+    private Compilation compilation;
+    private CompilationDto compilationDto;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Fixtures.objectMapper();
+        compilation = Fixtures.compilation(events);
+        compilationDto = CollectionMapper.returnCompilationDto(compilation);
+    }
+
+    @Benchmark
+    public CompilationDto map() {
+        return CollectionMapper.returnCompilationDto(compilation);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(compilationDto);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(CollectionMapper.returnCompilationDto(compilation));
+    }
+}
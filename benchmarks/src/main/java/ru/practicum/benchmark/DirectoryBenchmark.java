@@ -0,0 +1,70 @@
+package ru.practicum.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.category.Category;
+import ru.practicum.category.CategoryMapper;
+import ru.practicum.category.dto.CategoryDto;
+import ru.practicum.user.User;
+import ru.practicum.user.UserMapper;
+import ru.practicum.user.dto.UserDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Страницы справочников: CategoryMapper и UserMapper вместе с сериализацией.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectoryBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int size;
+
+    private ObjectMapper objectMapper;
+    private List<Category> categories;
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Fixtures.objectMapper();
+        categories = Fixtures.categories(size);
+        users = Fixtures.users(size);
+    }
+
+    @Benchmark
+    public List<CategoryDto> mapCategories() {
+        return CategoryMapper.returnCategoryDtoList(categories);
+    }
+
+    @Benchmark
+    public List<UserDto> mapUsers() {
+        return UserMapper.returnUserDtoList(users);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializeCategories() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(CategoryMapper.returnCategoryDtoList(categories));
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializeUsers() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(UserMapper.returnUserDtoList(users));
+    }
+}
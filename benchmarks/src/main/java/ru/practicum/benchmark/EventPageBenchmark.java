@@ -0,0 +1,80 @@
+package ru.practicum.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.event.EventMapper;
+import ru.practicum.event.dto.EventFullDto;
+import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.event.model.Event;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Страница событий: маппинг в EventFullDto/EventShortDto, сериализация готовых DTO и весь путь ответа целиком.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventPageBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int size;
+
+    private ObjectMapper objectMapper;
+    private List<Event> events;
+    private List<EventFullDto> fullDtos;
+    private List<EventShortDto> shortDtos;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Fixtures.objectMapper();
+        events = Fixtures.events(size);
+        fullDtos = EventMapper.returnEventFullDtoList(events);
+        shortDtos = EventMapper.returnEventShortDtoList(events);
+    }
+
+    @Benchmark
+    public List<EventFullDto> mapFull() {
+        return EventMapper.returnEventFullDtoList(events);
+    }
+
+    @Benchmark
+    public List<EventShortDto> mapShort() {
+        return EventMapper.returnEventShortDtoList(events);
+    }
+
+    @Benchmark
+    public byte[] serializeFull() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(fullDtos);
+    }
+
+    @Benchmark
+    public byte[] serializeShort() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(shortDtos);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializeFull() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(EventMapper.returnEventFullDtoList(events));
+    }
+
+    @Benchmark
+    public byte[] mapAndSerializeShort() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(EventMapper.returnEventShortDtoList(events));
+    }
+}
@@ -0,0 +1,142 @@
+package ru.practicum.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.practicum.category.Category;
+import ru.practicum.compilation.Compilation;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.Location;
+import ru.practicum.user.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import static ru.practicum.util.enums.State.PUBLISHED;
+
+/**
+ * Данные для бенчмарков, близкие по форме к реальным ответам: у событий общие категории и инициаторы,
+ * аннотации и описания на кириллице типичной длины. Генерация детерминирована.
+ */
+final class Fixtures {
+
+    static final int CATEGORIES = 20;
+    static final int USERS = 200;
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2023, 6, 1, 12, 0, 0);
+    private static final String WORDS = "концерт выставка лекция мастер-класс фестиваль спектакль экскурсия встреча "
+            + "город музыка искусство история наука кино театр семья вечер площадка билет программа";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Так же, как JacksonAutoConfiguration: JavaTimeModule, даты строками, без FAIL_ON_UNKNOWN_PROPERTIES.
+     */
+    static ObjectMapper objectMapper() {
+
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    static List<Category> categories(int size) {
+
+        List<Category> categories = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            categories.add(Category.builder().id(i).name("Категория " + i).build());
+        }
+        return categories;
+    }
+
+    static List<User> users(int size) {
+
+        List<User> users = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            users.add(User.builder().id(i).name("Пользователь " + i).email("user" + i + "@example.com").build());
+        }
+        return users;
+    }
+
+    static List<Event> events(int size) {
+
+        Random random = new Random(size);
+        List<Category> categories = categories(CATEGORIES);
+        List<User> users = users(USERS);
+        List<Event> events = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            events.add(Event.builder()
+                    .id(i)
+                    .title(text(random, 3, 120))
+                    .annotation(text(random, 20, 2000))
+                    .description(text(random, 150, 7000))
+                    .category(categories.get(random.nextInt(categories.size())))
+                    .initiator(users.get(random.nextInt(users.size())))
+                    .location(Location.builder()
+                            .id(i)
+                            .lat(55.5f + random.nextFloat())
+                            .lon(37.3f + random.nextFloat())
+                            .build())
+                    .eventDate(NOW.plusDays(random.nextInt(90)).plusMinutes(random.nextInt(1440)))
+                    .createdOn(NOW.minusDays(random.nextInt(30)))
+                    .publishedOn(NOW.minusDays(random.nextInt(10)))
+                    .paid(random.nextBoolean())
+                    .participantLimit((long) random.nextInt(500))
+                    .requestModeration(random.nextBoolean())
+                    .confirmedRequests((long) random.nextInt(100))
+                    .views((long) random.nextInt(100_000))
+                    .state(PUBLISHED)
+                    .build());
+        }
+        return events;
+    }
+
+    static Compilation compilation(int events) {
+
+        return Compilation.builder()
+                .id(1L)
+                .pinned(true)
+                .title("Лучшие события месяца")
+                .events(new LinkedHashSet<>(events(events)))
+                .build();
+    }
+
+    static List<HitDto> hits(int size) {
+
+        Random random = new Random(size);
+        List<HitDto> hits = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            hits.add(HitDto.builder()
+                    .app("ewm-main-service")
+                    .uri("/events/" + (1 + random.nextInt(10_000)))
+                    .ip("10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256))
+                    .timestamp(NOW.plusSeconds(i))
+                    .build());
+        }
+        return hits;
+    }
+
+    static List<StatsDto> stats(int size) {
+
+        List<StatsDto> stats = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            stats.add(new StatsDto("ewm-main-service", "/events/" + i, (long) (size - i + 1) * 7));
+        }
+        return stats;
+    }
+
+    private static String text(Random random, int words, int maxLength) {
+
+        String[] dictionary = WORDS.split(" ");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(dictionary[random.nextInt(dictionary.length)]);
+        }
+        return text.length() > maxLength ? text.substring(0, maxLength) : text.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package ru.practicum.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обмен со stats-server: пачки HitDto в обе стороны и ответ /stats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsDtoBenchmark {
+
+    private static final TypeReference<List<HitDto>> HITS = new TypeReference<>() {
+    };
+
+    @Param({"10", "100", "1000"})
+    int size;
+
+    private ObjectMapper objectMapper;
+    private List<HitDto> hits;
+    private byte[] hitsJson;
+    private List<StatsDto> stats;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Fixtures.objectMapper();
+        hits = Fixtures.hits(size);
+        hitsJson = objectMapper.writeValueAsBytes(hits);
+        stats = Fixtures.stats(size);
+    }
+
+    @Benchmark
+    public byte[] serializeHits() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(hits);
+    }
+
+    @Benchmark
+    public List<HitDto> deserializeHits() throws IOException {
+        return objectMapper.readValue(hitsJson, HITS);
+    }
+
+    @Benchmark
+    public byte[] serializeStats() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(stats);
+    }
+}
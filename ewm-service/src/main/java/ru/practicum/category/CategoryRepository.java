@@ -1,8 +1,13 @@
 package ru.practicum.category;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
+
+    List<Category> findByIdGreaterThanOrderByIdAsc(Long afterId, PageRequest pageRequest);
 }
@@ -1,6 +1,7 @@
 package ru.practicum.category;
 
 import ru.practicum.category.dto.CategoryDto;
+import ru.practicum.util.CursorPage;
 
 import java.util.List;
 
@@ -12,7 +13,7 @@ public interface CategoryService {
 
     void deleteCategory(Long categoryId);
 
-    List<CategoryDto> getCategories(Integer from, Integer size);
+    CursorPage<CategoryDto> getCategories(String after, Integer from, Integer size);
 
     CategoryDto getCategoryById(Long categoryId);
 }
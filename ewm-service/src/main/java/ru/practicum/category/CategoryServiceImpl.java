@@ -5,9 +5,12 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.category.dto.CategoryDto;
+import ru.practicum.compilation.PinnedCompilationsCache;
 import ru.practicum.event.EventRepository;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.NotFoundException;
+import ru.practicum.util.CursorPage;
+import ru.practicum.util.PageCursor;
 
 import java.util.List;
 
@@ -20,6 +23,7 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final EventRepository eventRepository;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
 
     @Transactional
     @Override
@@ -39,6 +43,7 @@ public class CategoryServiceImpl implements CategoryService {
                 -> new NotFoundException("Категории с id " + categoryId + " не существует"));
         category.setName(categoryDto.getName());
         categoryRepository.save(category);
+        pinnedCompilationsCache.invalidate();
 
         return returnCategoryDto(category);
     }
@@ -59,11 +64,13 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Transactional(readOnly = true)
     @Override
-    public List<CategoryDto> getCategories(Integer from, Integer size) {
+    public CursorPage<CategoryDto> getCategories(String after, Integer from, Integer size) {
 
-        PageRequest pageRequest = PageRequest.of(from / size, size);
+        PageCursor cursor = PageCursor.decode(after);
+        PageRequest pageRequest = PageCursor.pageRequest(cursor, from, size);
+        List<Category> categories = categoryRepository.findByIdGreaterThanOrderByIdAsc(PageCursor.afterId(cursor), pageRequest);
 
-        return returnCategoryDtoList(categoryRepository.findAll(pageRequest));
+        return CursorPage.of(returnCategoryDtoList(categories), size, category -> PageCursor.byId(category.getId()));
     }
 
     @Transactional(readOnly = true)
@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.*;
 import ru.practicum.category.CategoryService;
 import ru.practicum.category.dto.CategoryDto;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -20,9 +21,11 @@ public class CategoryController {
     @GetMapping("/categories")
     @ResponseStatus(value = HttpStatus.OK)
     public List<CategoryDto> getCategories(@PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                           @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                           @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                           @RequestParam(required = false, name = "after") String after,
+                                           HttpServletResponse response) {
 
-        return categoryService.getCategories(from, size);
+        return categoryService.getCategories(after, from, size).writeTo(response);
     }
 
     @GetMapping("/categories/{catId}")
@@ -5,27 +5,30 @@ import ru.practicum.compilation.dto.CompilationDto;
 import ru.practicum.compilation.dto.CompilationNewDto;
 import ru.practicum.event.EventMapper;
 import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.event.model.Event;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
 
 @UtilityClass
 public class CollectionMapper {
 
     public static CompilationDto returnCompilationDto(Compilation compilation) {
 
-        List<EventShortDto> eventShortDtoList = EventMapper.returnEventShortDtoList(compilation.getEvents());
+        List<Event> events = new ArrayList<>(compilation.getEvents());
+        events.sort(Comparator.comparing(Event::getId));
+
+        return returnCompilationDto(compilation, EventMapper.returnEventShortDtoList(events));
+    }
+
+    public static CompilationDto returnCompilationDto(Compilation compilation, List<EventShortDto> events) {
 
-        Set<EventShortDto> eventShortDtoSet = new HashSet<>();
-        for (EventShortDto shortDto : eventShortDtoList) {
-            eventShortDtoSet.add(shortDto);
-        }
         return CompilationDto.builder()
                 .id(compilation.getId())
                 .pinned(compilation.getPinned())
                 .title(compilation.getTitle())
-                .events(eventShortDtoSet)
+                .events(events)
                 .build();
     }
 
@@ -35,13 +38,4 @@ public class CollectionMapper {
                 .pinned(compilationNewDto.getPinned())
                 .build();
     }
-
-    public static Set<CompilationDto> returnCompilationDtoSet(Iterable<Compilation> compilations) {
-
-        Set<CompilationDto> result = new HashSet<>();
-        for (Compilation compilation : compilations) {
-            result.add(returnCompilationDto(compilation));
-        }
-        return result;
-    }
 }
@@ -0,0 +1,8 @@
+package ru.practicum.compilation;
+
+public interface CompilationEventLink {
+
+    Long getCompilationId();
+
+    Long getEventId();
+}
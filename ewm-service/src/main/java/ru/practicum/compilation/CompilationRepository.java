@@ -2,10 +2,23 @@ package ru.practicum.compilation;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
 
-    List<Compilation> findByPinned(Boolean pinned, PageRequest pageRequest);
+    List<Compilation> findByPinnedAndIdGreaterThanOrderByIdAsc(Boolean pinned, Long afterId, PageRequest pageRequest);
+
+    List<Compilation> findByPinnedOrderByIdAsc(Boolean pinned);
+
+    List<Compilation> findByIdGreaterThanOrderByIdAsc(Long afterId, PageRequest pageRequest);
+
+    @Query(value = "SELECT ce.compilation_id AS compilationId, ce.event_id AS eventId " +
+            "FROM compilations_events AS ce " +
+            "WHERE ce.compilation_id IN :compilationIds " +
+            "ORDER BY ce.compilation_id, ce.event_id", nativeQuery = true)
+    List<CompilationEventLink> findEventLinks(@Param("compilationIds") Collection<Long> compilationIds);
 }
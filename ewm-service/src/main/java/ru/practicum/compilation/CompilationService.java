@@ -3,6 +3,7 @@ package ru.practicum.compilation;
 import ru.practicum.compilation.dto.CompilationDto;
 import ru.practicum.compilation.dto.CompilationNewDto;
 import ru.practicum.compilation.dto.CompilationUpdateDto;
+import ru.practicum.util.CursorPage;
 
 import java.util.List;
 
@@ -14,7 +15,9 @@ public interface CompilationService {
 
     CompilationDto updateCompilation(Long compId, CompilationUpdateDto compilationUpdateDto);
 
-    List<CompilationDto> getCompilations(Boolean pinned, Integer from, Integer size);
+    CursorPage<CompilationDto> getCompilations(Boolean pinned, String after, Integer from, Integer size);
+
+    byte[] getPinnedCompilationsJson(Integer from, Integer size);
 
     CompilationDto getCompilationById(Long compId);
 }
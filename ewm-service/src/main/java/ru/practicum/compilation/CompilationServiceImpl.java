@@ -1,19 +1,31 @@
 package ru.practicum.compilation;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.compilation.dto.CompilationDto;
 import ru.practicum.compilation.dto.CompilationNewDto;
 import ru.practicum.compilation.dto.CompilationUpdateDto;
+import ru.practicum.event.EventMapper;
 import ru.practicum.event.EventRepository;
+import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.event.model.Event;
 import ru.practicum.exception.NotFoundException;
+import ru.practicum.util.CursorPage;
+import ru.practicum.util.PageCursor;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static ru.practicum.compilation.CollectionMapper.returnCompilationDto;
 
@@ -21,10 +33,13 @@ import static ru.practicum.compilation.CollectionMapper.returnCompilationDto;
 @Service
 @Transactional(readOnly = true)
 @AllArgsConstructor
+@Timed(value = "compilations.service", histogram = true)
 public class CompilationServiceImpl implements CompilationService {
 
     private final CompilationRepository compilationRepository;
     private final EventRepository eventRepository;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     @Transactional
@@ -42,6 +57,7 @@ public class CompilationServiceImpl implements CompilationService {
         }
 
         compilation = compilationRepository.save(compilation);
+        pinnedCompilationsCache.invalidate();
         return returnCompilationDto(compilation);
     }
 
@@ -53,6 +69,7 @@ public class CompilationServiceImpl implements CompilationService {
         compilationRepository.findById(compId).orElseThrow(()
                 -> new NotFoundException("Подборки с id " + compId + " не существует"));
         compilationRepository.deleteById(compId);
+        pinnedCompilationsCache.invalidate();
     }
 
     @Override
@@ -77,23 +94,32 @@ public class CompilationServiceImpl implements CompilationService {
         }
 
         compilation = compilationRepository.save(compilation);
+        pinnedCompilationsCache.invalidate();
         return returnCompilationDto(compilation);
     }
 
     @Transactional(readOnly = true)
     @Override
-    public List<CompilationDto> getCompilations(Boolean pinned, Integer from, Integer size) {
+    public CursorPage<CompilationDto> getCompilations(Boolean pinned, String after, Integer from, Integer size) {
 
-        PageRequest pageRequest = PageRequest.of(from / size, size);
+        PageCursor cursor = PageCursor.decode(after);
+        PageRequest pageRequest = PageCursor.pageRequest(cursor, from, size);
         List<Compilation> compilations;
 
         if (pinned) {
-            compilations = compilationRepository.findByPinned(pinned, pageRequest);
+            compilations = compilationRepository.findByPinnedAndIdGreaterThanOrderByIdAsc(pinned, PageCursor.afterId(cursor), pageRequest);
         } else {
-            compilations = compilationRepository.findAll(pageRequest).getContent();
-            ;
+            compilations = compilationRepository.findByIdGreaterThanOrderByIdAsc(PageCursor.afterId(cursor), pageRequest);
         }
-        return new ArrayList<>(CollectionMapper.returnCompilationDtoSet(compilations));
+        return CursorPage.of(returnCompilationDtoList(compilations), size, compilation -> PageCursor.byId(compilation.getId()));
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public byte[] getPinnedCompilationsJson(Integer from, Integer size) {
+
+        return pinnedCompilationsCache.getPage(from, size, () -> transactionTemplate.execute(status ->
+                returnCompilationDtoList(compilationRepository.findByPinnedOrderByIdAsc(true))));
     }
 
     @Transactional(readOnly = true)
@@ -103,6 +129,43 @@ public class CompilationServiceImpl implements CompilationService {
         Compilation compilation = compilationRepository.findById(compId).orElseThrow(() ->
                 new NotFoundException("Подборки с id " + compId + " не существует"));
 
-        return returnCompilationDto(compilation);
+        return returnCompilationDtoList(List.of(compilation)).get(0);
+    }
+
+    private List<CompilationDto> returnCompilationDtoList(List<Compilation> compilations) {
+
+        List<CompilationDto> result = new ArrayList<>();
+        if (compilations.isEmpty()) {
+            return result;
+        }
+
+        List<Long> compilationIds = new ArrayList<>();
+        for (Compilation compilation : compilations) {
+            compilationIds.add(compilation.getId());
+        }
+        List<CompilationEventLink> links = compilationRepository.findEventLinks(compilationIds);
+
+        Set<Long> eventIds = new HashSet<>();
+        for (CompilationEventLink link : links) {
+            eventIds.add(link.getEventId());
+        }
+        Map<Long, EventShortDto> events = new HashMap<>();
+        if (!eventIds.isEmpty()) {
+            for (Event event : eventRepository.findByIdIn(eventIds)) {
+                events.put(event.getId(), EventMapper.returnEventShortDto(event));
+            }
+        }
+
+        Map<Long, List<EventShortDto>> eventsByCompilation = new HashMap<>();
+        for (CompilationEventLink link : links) {
+            eventsByCompilation.computeIfAbsent(link.getCompilationId(), id -> new ArrayList<>())
+                    .add(events.get(link.getEventId()));
+        }
+
+        for (Compilation compilation : compilations) {
+            result.add(CollectionMapper.returnCompilationDto(compilation,
+                    eventsByCompilation.getOrDefault(compilation.getId(), Collections.emptyList())));
+        }
+        return result;
     }
 }
@@ -0,0 +1,125 @@
+package ru.practicum.compilation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.compilation.dto.CompilationDto;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Снимок закреплённых подборок, заранее сериализованный в JSON.
+ * Любое изменение подборок или их событий увеличивает version после коммита,
+ * и следующий запрос пересобирает снимок. Разница version и snapshot.version
+ * показывает, насколько снимок отстал.
+ */
+@Component
+public class PinnedCompilationsCache {
+
+    private static final int MAX_CACHED_PAGES = 64;
+
+    private final ObjectMapper objectMapper;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(-1, List.of());
+
+    public PinnedCompilationsCache(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+
+        Gauge.builder("compilations.pinned.cache.version", version, AtomicLong::get)
+                .description("Pinned compilations data version on this node")
+                .register(meterRegistry);
+        Gauge.builder("compilations.pinned.cache.snapshot.version", this, cache -> cache.snapshot.version)
+                .description("Data version the pinned compilations snapshot was built from")
+                .register(meterRegistry);
+    }
+
+    public void invalidate() {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        } else {
+            version.incrementAndGet();
+        }
+    }
+
+    public byte[] getPage(int from, int size, Supplier<List<CompilationDto>> loader) {
+
+        Snapshot current = snapshot;
+        if (current.version != version.get()) {
+            current = rebuild(loader);
+        }
+
+        long pageKey = ((long) from << 32) | size;
+        byte[] page = current.pages.get(pageKey);
+        if (page == null) {
+            page = current.buildPage(from, size);
+            if (current.pages.size() < MAX_CACHED_PAGES) {
+                current.pages.put(pageKey, page);
+            }
+        }
+        return page;
+    }
+
+    private synchronized Snapshot rebuild(Supplier<List<CompilationDto>> loader) {
+
+        long targetVersion = version.get();
+        if (snapshot.version == targetVersion) {
+            return snapshot;
+        }
+
+        List<byte[]> compilations = new ArrayList<>();
+        for (CompilationDto compilationDto : loader.get()) {
+            try {
+                compilations.add(objectMapper.writeValueAsBytes(compilationDto));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Не удалось сериализовать подборку " + compilationDto.getId(), e);
+            }
+        }
+        snapshot = new Snapshot(targetVersion, compilations);
+        return snapshot;
+    }
+
+    private static class Snapshot {
+
+        private final long version;
+        private final List<byte[]> compilations;
+        private final Map<Long, byte[]> pages = new ConcurrentHashMap<>();
+
+        Snapshot(long version, List<byte[]> compilations) {
+            this.version = version;
+            this.compilations = compilations;
+        }
+
+        byte[] buildPage(int from, int size) {
+
+            int start = Math.min((from / size) * size, compilations.size());
+            int end = Math.min(start + size, compilations.size());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write('[');
+            for (int i = start; i < end; i++) {
+                if (i > start) {
+                    out.write(',');
+                }
+                out.writeBytes(compilations.get(i));
+            }
+            out.write(']');
+            return out.toByteArray();
+        }
+    }
+}
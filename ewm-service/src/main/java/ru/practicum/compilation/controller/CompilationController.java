@@ -2,12 +2,15 @@ package ru.practicum.compilation.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.compilation.CompilationService;
 import ru.practicum.compilation.dto.CompilationDto;
 import ru.practicum.compilation.dto.CompilationNewDto;
 import ru.practicum.compilation.dto.CompilationUpdateDto;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -24,9 +27,20 @@ public class CompilationController {
     @ResponseStatus(HttpStatus.OK)
     public List<CompilationDto> getCompilations(@RequestParam(defaultValue = "false", name = "pinned") Boolean pinned,
                                                 @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                                @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                                @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                @RequestParam(required = false, name = "after") String after,
+                                                HttpServletResponse response) {
 
-        return compilationService.getCompilations(pinned, from, size);
+        return compilationService.getCompilations(pinned, after, from, size).writeTo(response);
+    }
+
+    @GetMapping(value = "/compilations", params = {"pinned=true", "!after"})
+    public ResponseEntity<byte[]> getPinnedCompilations(@PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
+                                                        @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(compilationService.getPinnedCompilationsJson(from, size));
     }
 
     @GetMapping("/compilations/{compId}")
@@ -4,7 +4,7 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 import ru.practicum.event.dto.EventShortDto;
 
-import java.util.Set;
+import java.util.List;
 
 @Data
 @Builder
@@ -19,5 +19,5 @@ public class CompilationDto {
 
     String title;
 
-    Set<EventShortDto> events;
+    List<EventShortDto> events;
 }
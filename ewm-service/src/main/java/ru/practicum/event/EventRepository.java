@@ -1,7 +1,9 @@
 package ru.practicum.event;
 
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -10,37 +12,60 @@ import ru.practicum.util.enums.State;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 @Repository
 public interface EventRepository extends JpaRepository<Event, Long> {
 
-    List<Event> findByInitiatorId(Long initiatorId, PageRequest pageRequest);
+    @Override
+    @EntityGraph(attributePaths = {"initiator", "category", "location"})
+    Optional<Event> findById(Long eventId);
 
+    @EntityGraph(attributePaths = {"initiator", "category", "location"})
+    List<Event> findByInitiatorIdAndIdGreaterThanOrderByIdAsc(Long initiatorId, Long afterId, PageRequest pageRequest);
+
+    @EntityGraph(attributePaths = {"initiator", "category", "location"})
     Event findByInitiatorIdAndId(Long initiatorId, Long eventId);
 
     List<Event> findByCategoryId(Long categoryId);
 
+    @Modifying
+    @Query(value = "UPDATE events SET confirmed_requests = confirmed_requests + :count " +
+            "WHERE id = :eventId AND (participant_limit = 0 OR confirmed_requests + :count <= participant_limit)", nativeQuery = true)
+    int reserveConfirmedRequests(@Param("eventId") Long eventId, @Param("count") long count);
+
+    @Modifying
+    @Query(value = "UPDATE events SET confirmed_requests = confirmed_requests - :count " +
+            "WHERE id = :eventId AND confirmed_requests >= :count", nativeQuery = true)
+    int releaseConfirmedRequests(@Param("eventId") Long eventId, @Param("count") long count);
+
+    @Query(value = "SELECT confirmed_requests FROM events WHERE id = :eventId", nativeQuery = true)
+    Long findConfirmedRequests(@Param("eventId") Long eventId);
+
+    @EntityGraph(attributePaths = {"initiator", "category", "location"})
     Set<Event> findByIdIn(Set<Long> events);
 
+    @EntityGraph(attributePaths = {"initiator", "category", "location"})
     @Query(value = "SELECT e FROM Event AS e " +
-            "WHERE (:users IS NULL OR e.initiator.id IN :users) " +
+            "WHERE e.id > :afterId AND ((:users IS NULL OR e.initiator.id IN :users) " +
             "AND (:states IS NULL OR e.state IN :states) " +
             "AND (:categories IS NULL OR e.category.id IN :categories) " +
             "OR (CAST(:rangeStart AS date) IS NULL AND CAST(:rangeStart AS date) IS NULL)" +
             "OR (CAST(:rangeStart AS date) IS NULL AND e.eventDate < CAST(:rangeEnd AS date)) " +
-            "OR (CAST(:rangeEnd AS date) IS NULL AND e.eventDate > CAST(:rangeStart AS date)) " +
-            "GROUP BY e.id " +
+            "OR (CAST(:rangeEnd AS date) IS NULL AND e.eventDate > CAST(:rangeStart AS date))) " +
             "ORDER BY e.id ASC")
-    List<Event> findEventsByAdminFromParam(@Param("users") List<Long> users,
+    List<Event> findEventsByAdminFromParam(@Param("afterId") Long afterId,
+                                           @Param("users") List<Long> users,
                                            @Param("states") List<State> states,
                                            @Param("categories") List<Long> categories,
                                            @Param("rangeStart") LocalDateTime rangeStart,
                                            @Param("rangeEnd") LocalDateTime rangeEnd,
                                            PageRequest pageRequest);
 
+    @EntityGraph(attributePaths = {"initiator", "category", "location"})
     @Query(value = "SELECT e FROM Event AS e " +
-            "WHERE (e.state = 'PUBLISHED') " +
+            "WHERE e.id > :afterId AND ((e.state = 'PUBLISHED') " +
             "AND (:text IS NULL) " +
             "OR (LOWER(e.annotation) LIKE LOWER(CONCAT('%', :text, '%'))) " +
             "OR (LOWER(e.description) LIKE LOWER(CONCAT('%', :text, '%'))) " +
@@ -50,15 +75,14 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             "OR (CAST(:rangeStart AS date) IS NULL AND CAST(:rangeStart AS date) IS NULL)" +
             "OR (CAST(:rangeStart AS date) IS NULL AND e.eventDate < CAST(:rangeEnd AS date)) " +
             "OR (CAST(:rangeEnd AS date) IS NULL AND e.eventDate > CAST(:rangeStart AS date)) " +
-            "AND (e.confirmedRequests < e.participantLimit OR :onlyAvailable = FALSE)" +
-            "GROUP BY e.id " +
-            "ORDER BY LOWER(:sort) ASC")
-    List<Event> findEventsByPublicFromParam(@Param("text") String text,
+            "AND (e.confirmedRequests < e.participantLimit OR :onlyAvailable = FALSE)) " +
+            "ORDER BY e.id ASC")
+    List<Event> findEventsByPublicFromParam(@Param("afterId") Long afterId,
+                                            @Param("text") String text,
                                             @Param("categories") List<Long> categories,
                                             @Param("paid") Boolean paid,
                                             @Param("rangeStart") LocalDateTime startTime,
                                             @Param("rangeEnd") LocalDateTime endTime,
                                             @Param("onlyAvailable") Boolean onlyAvailable,
-                                            @Param("sort") String sort,
                                             PageRequest pageRequest);
 }
\ No newline at end of file
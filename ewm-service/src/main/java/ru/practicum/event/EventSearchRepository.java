@@ -0,0 +1,165 @@
+package ru.practicum.event;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.event.model.GeoArea;
+import ru.practicum.util.PageCursor;
+import ru.practicum.util.enums.EventSort;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Поиск опубликованных событий с сортировкой на стороне БД.
+ * Текст ищется по events.search_vector (GIN-индекс), каждое слово как префикс.
+ * Порядок: EVENT_DATE - по (event_date, id) из частичного индекса, VIEWS - по event_views (views DESC, event_id),
+ * DISTANCE - по расстоянию до центра area, без сортировки - по ts_rank, затем id.
+ * Фильтр по area отбирает кандидатов по описанному прямоугольнику через GiST-индекс locations_point_idx.
+ * Возвращает id в порядке выдачи вместе с ключом сортировки для курсора.
+ */
+@Repository
+@RequiredArgsConstructor
+@Timed(value = "events.search", histogram = true)
+public class EventSearchRepository {
+
+    private static final String DISTANCE = "(2 * " + GeoArea.EARTH_RADIUS_KM + " * asin(least(1, sqrt(" +
+            "power(sin(radians(l.lat - :lat) / 2), 2) + " +
+            "cos(radians(:lat)) * cos(radians(l.lat)) * power(sin(radians(l.lon - :lon) / 2), 2)))))";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public static String toPrefixQuery(String text) {
+
+        if (text == null) {
+            return null;
+        }
+
+        List<String> terms = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                terms.add(word + ":*");
+            }
+        }
+        return terms.isEmpty() ? null : String.join(" & ", terms);
+    }
+
+    public Map<Long, String> searchPublished(String prefixQuery, EventSort sort, List<Long> categories, Boolean paid,
+                                             LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable,
+                                             GeoArea area, PageCursor cursor, int offset, int limit) {
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+
+        String sortKey;
+        if (sort == EventSort.EVENT_DATE) {
+            sortKey = "e.event_date";
+        } else if (sort == EventSort.VIEWS) {
+            sortKey = "v.views";
+        } else if (sort == EventSort.DISTANCE) {
+            sortKey = DISTANCE;
+        } else {
+            sortKey = "ts_rank(e.search_vector, q)";
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT e.id, " + sortKey + " AS sort_key FROM events AS e");
+        if (sort == EventSort.VIEWS) {
+            sql.append(" JOIN event_views AS v ON v.event_id = e.id");
+        }
+        if (area != null) {
+            sql.append(" JOIN locations AS l ON l.id = e.location_id");
+        }
+        if (prefixQuery != null) {
+            sql.append(" CROSS JOIN to_tsquery('russian', :query) AS q");
+            params.addValue("query", prefixQuery);
+        }
+        sql.append(" WHERE e.state = 'PUBLISHED'");
+
+        if (prefixQuery != null) {
+            sql.append(" AND e.search_vector @@ q");
+        }
+        if (categories != null && !categories.isEmpty()) {
+            sql.append(" AND e.category_id IN (:categories)");
+            params.addValue("categories", categories);
+        }
+        if (paid != null) {
+            sql.append(" AND e.paid = :paid");
+            params.addValue("paid", paid);
+        }
+        if (rangeStart != null) {
+            sql.append(" AND e.event_date >= :rangeStart");
+            params.addValue("rangeStart", Timestamp.valueOf(rangeStart));
+        }
+        if (rangeEnd != null) {
+            sql.append(" AND e.event_date <= :rangeEnd");
+            params.addValue("rangeEnd", Timestamp.valueOf(rangeEnd));
+        }
+        if (Boolean.TRUE.equals(onlyAvailable)) {
+            sql.append(" AND (e.participant_limit = 0 OR e.confirmed_requests < e.participant_limit)");
+        }
+        if (area != null) {
+            sql.append(" AND point(l.lon, l.lat) <@ box(point(:minLon, :minLat), point(:maxLon, :maxLat))");
+            sql.append(" AND " + DISTANCE + " <= :radius");
+            params.addValue("lat", area.getLat())
+                    .addValue("lon", area.getLon())
+                    .addValue("radius", area.getRadius())
+                    .addValue("minLat", area.getMinLat())
+                    .addValue("maxLat", area.getMaxLat())
+                    .addValue("minLon", area.getMinLon())
+                    .addValue("maxLon", area.getMaxLon());
+        }
+
+        if (cursor != null) {
+            params.addValue("afterId", cursor.getId());
+            if (sort == EventSort.EVENT_DATE) {
+                sql.append(" AND (e.event_date, e.id) > (:afterKey, :afterId)");
+                params.addValue("afterKey", Timestamp.valueOf(cursor.getKeyAsDateTime()));
+            } else if (sort == EventSort.VIEWS) {
+                sql.append(" AND (v.views < :afterKey OR (v.views = :afterKey AND v.event_id > :afterId))");
+                params.addValue("afterKey", cursor.getKeyAsLong());
+            } else if (sort == EventSort.DISTANCE) {
+                sql.append(" AND (" + DISTANCE + " > :afterKey OR (" + DISTANCE + " = :afterKey AND e.id > :afterId))");
+                params.addValue("afterKey", cursor.getKeyAsDouble());
+            } else {
+                sql.append(" AND (ts_rank(e.search_vector, q) < :afterKey " +
+                        "OR (ts_rank(e.search_vector, q) = :afterKey AND e.id > :afterId))");
+                params.addValue("afterKey", cursor.getKeyAsFloat());
+            }
+        }
+
+        if (sort == EventSort.EVENT_DATE) {
+            sql.append(" ORDER BY e.event_date ASC, e.id ASC");
+        } else if (sort == EventSort.VIEWS) {
+            sql.append(" ORDER BY v.views DESC, v.event_id ASC");
+        } else if (sort == EventSort.DISTANCE) {
+            sql.append(" ORDER BY sort_key ASC, e.id ASC");
+        } else {
+            sql.append(" ORDER BY sort_key DESC, e.id ASC");
+        }
+        sql.append(" OFFSET :offset LIMIT :limit");
+
+        Map<Long, String> keys = new LinkedHashMap<>();
+        namedParameterJdbcTemplate.query(sql.toString(), params, rs -> {
+            String key;
+            if (sort == EventSort.EVENT_DATE) {
+                key = rs.getTimestamp("sort_key").toLocalDateTime().toString();
+            } else if (sort == EventSort.VIEWS) {
+                key = Long.toString(rs.getLong("sort_key"));
+            } else if (sort == EventSort.DISTANCE) {
+                key = Double.toString(rs.getDouble("sort_key"));
+            } else {
+                key = Float.toString(rs.getFloat("sort_key"));
+            }
+            keys.put(rs.getLong("id"), key);
+        });
+        return keys;
+    }
+}
@@ -1,7 +1,10 @@
 package ru.practicum.event;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.event.dto.*;
+import ru.practicum.request.RequestExportFormat;
 import ru.practicum.request.dto.RequestDto;
+import ru.practicum.util.CursorPage;
 
 import java.util.List;
 
@@ -9,7 +12,7 @@ public interface EventService {
 
     EventFullDto addEvent(Long userId, EventNewDto eventnewDto);
 
-    List<EventShortDto> getAllEventsByUserId(Long userId, Integer from, Integer size);
+    CursorPage<EventShortDto> getAllEventsByUserId(Long userId, String after, Integer from, Integer size);
 
     EventFullDto getUserEventById(Long userId, Long eventId);
 
@@ -17,13 +20,15 @@ public interface EventService {
 
     List<RequestDto> getRequestsForEventIdByUserId(Long userId, Long eventId);
 
+    StreamingResponseBody exportRequestsForEventIdByUserId(Long userId, Long eventId, RequestExportFormat format);
+
     RequestUpdateDtoResult updateStatusRequestsForEventIdByUserId(RequestUpdateDtoRequest requestDto, Long userId, Long eventId);
 
     EventFullDto updateEventByAdmin(EventUpdateDto eventUpdateDto, Long eventId);
 
-    List<EventFullDto> getEventsByAdmin(List<Long> users, List<String> states, List<Long> categories, String startTime, String endTime, Integer from, Integer size);
+    CursorPage<EventFullDto> getEventsByAdmin(List<Long> users, List<String> states, List<Long> categories, String startTime, String endTime, String after, Integer from, Integer size);
 
     EventFullDto getEventById(Long eventId, String uri, String ip);
 
-    List<EventShortDto> getEventsByPublic(String text, List<Long> categories, Boolean paid, String startTime, String endTime, Boolean onlyAvailable, String sort, Integer from, Integer size, String uri, String ip);
+    CursorPage<EventShortDto> getEventsByPublic(String text, List<Long> categories, Boolean paid, String startTime, String endTime, Boolean onlyAvailable, String sort, Float lat, Float lon, Float radius, String after, Integer from, Integer size, String uri, String ip);
 }
@@ -1,29 +1,36 @@
 package ru.practicum.event;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.StatsClient;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.HitSender;
 import ru.practicum.category.Category;
 import ru.practicum.category.CategoryRepository;
+import ru.practicum.compilation.PinnedCompilationsCache;
 import ru.practicum.dto.HitDto;
-import ru.practicum.dto.StatsDto;
 import ru.practicum.event.dto.*;
 import ru.practicum.event.model.Event;
+import ru.practicum.event.model.GeoArea;
 import ru.practicum.event.model.Location;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.exception.ValidationException;
 import ru.practicum.request.Request;
+import ru.practicum.request.RequestAdmission;
+import ru.practicum.request.RequestExportFormat;
+import ru.practicum.request.RequestExporter;
+import ru.practicum.request.RequestModerationRepository;
 import ru.practicum.request.RequestRepository;
 import ru.practicum.request.dto.RequestDto;
 import ru.practicum.user.User;
 import ru.practicum.user.UserRepository;
+import ru.practicum.util.CursorPage;
+import ru.practicum.util.PageCursor;
+import ru.practicum.util.enums.EventSort;
 import ru.practicum.util.enums.State;
 import ru.practicum.util.enums.StateAction;
 import ru.practicum.util.enums.Status;
@@ -31,10 +38,14 @@ import ru.practicum.util.enums.Status;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static ru.practicum.Util.FORMATTER;
-import static ru.practicum.Util.START_HISTORY;
 import static ru.practicum.event.EventMapper.*;
 import static ru.practicum.request.RequestMapper.returnRequestDtoList;
 import static ru.practicum.util.enums.State.PUBLISHED;
@@ -42,14 +53,21 @@ import static ru.practicum.util.enums.State.PUBLISHED;
 @Slf4j
 @Service
 @AllArgsConstructor
+@Timed(value = "events.service", histogram = true)
 public class EventServiceImpl implements EventService {
     private final EventRepository eventRepository;
     private final RequestRepository requestRepository;
     private final LocationRepository locationRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
-    private final StatsClient client;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HitSender hitSender;
+    private final EventViewsCache eventViewsCache;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
+    private final EventSearchRepository eventSearchRepository;
+    private final EventViewsRepository eventViewsRepository;
+    private final RequestAdmission requestAdmission;
+    private final RequestModerationRepository requestModerationRepository;
+    private final RequestExporter requestExporter;
 
 
     @Override
@@ -68,13 +86,14 @@ public class EventServiceImpl implements EventService {
 
     @Transactional(readOnly = true)
     @Override
-    public List<EventShortDto> getAllEventsByUserId(Long userId, Integer from, Integer size) {
+    public CursorPage<EventShortDto> getAllEventsByUserId(Long userId, String after, Integer from, Integer size) {
 
         userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Пользователя с id " + userId + " не существует."));
-        PageRequest pageRequest = PageRequest.of(from / size, size);
-        List<Event> events = eventRepository.findByInitiatorId(userId, pageRequest);
+        PageCursor cursor = PageCursor.decode(after);
+        PageRequest pageRequest = PageCursor.pageRequest(cursor, from, size);
+        List<Event> events = eventRepository.findByInitiatorIdAndIdGreaterThanOrderByIdAsc(userId, PageCursor.afterId(cursor), pageRequest);
 
-        return returnEventShortDtoList(events);
+        return CursorPage.of(returnEventShortDtoList(events), size, event -> PageCursor.byId(event.getId()));
     }
 
     @Transactional(readOnly = true)
@@ -123,6 +142,20 @@ public class EventServiceImpl implements EventService {
         return returnRequestDtoList(requests);
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public StreamingResponseBody exportRequestsForEventIdByUserId(Long userId, Long eventId, RequestExportFormat format) {
+
+        User user = userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Пользователя с id " + userId + " не существует."));
+        Event event = eventRepository.findById(eventId).orElseThrow(() -> new NotFoundException("События с id " + eventId + " не существует."));
+
+        if (!user.getId().equals(event.getInitiator().getId())) {
+            throw new ConflictException("User не является инициатором события.");
+        }
+
+        return requestExporter.export(eventId, format);
+    }
+
     @Override
     @Transactional
     public RequestUpdateDtoResult updateStatusRequestsForEventIdByUserId(RequestUpdateDtoRequest requestDto, Long userId, Long eventId) {
@@ -147,34 +180,49 @@ public class EventServiceImpl implements EventService {
             throw new ConflictException("Превышен лимит участников.");
         }
 
-        List<Request> confirmedRequests = new ArrayList<>();
-        List<Request> rejectedRequests = new ArrayList<>();
-
-        long vacantPlace = event.getParticipantLimit() - event.getConfirmedRequests();
-
-        List<Request> requestsList = requestRepository.findAllById(requestDto.getRequestIds());
-
-        for (Request request : requestsList) {
-            if (!request.getStatus().equals(Status.PENDING)) {
-                throw new ConflictException("Request должен иметь статус PENDING.");
+        List<Long> requestIds = requestDto.getRequestIds() == null
+                ? List.of()
+                : new ArrayList<>(new LinkedHashSet<>(requestDto.getRequestIds()));
+        List<RequestDto> confirmedRequests = new ArrayList<>();
+        List<RequestDto> rejectedRequests = new ArrayList<>();
+
+        if (!requestIds.isEmpty()) {
+            if (requestDto.getStatus().equals(Status.CONFIRMED)) {
+                long reserved = reserveConfirmedRequests(event, requestIds.size());
+                confirmedRequests.addAll(requestModerationRepository.confirmPending(eventId, requestIds, reserved));
+                if (confirmedRequests.size() < reserved) {
+                    eventRepository.releaseConfirmedRequests(eventId, reserved - confirmedRequests.size());
+                }
             }
-
-            if (requestDto.getStatus().equals(Status.CONFIRMED) && vacantPlace > 0) {
-                request.setStatus(Status.CONFIRMED);
-                event.setConfirmedRequests(requestRepository.countAllByEventIdAndStatus(eventId, Status.CONFIRMED));
-                confirmedRequests.add(request);
-                vacantPlace--;
-            } else {
-                request.setStatus(Status.REJECTED);
-                rejectedRequests.add(request);
+            rejectedRequests.addAll(requestModerationRepository.rejectPending(eventId, requestIds));
+
+            if (confirmedRequests.size() + rejectedRequests.size() < requestIds.size()) {
+                Set<Long> moderated = new HashSet<>();
+                confirmedRequests.forEach(request -> moderated.add(request.getId()));
+                rejectedRequests.forEach(request -> moderated.add(request.getId()));
+                List<Long> skipped = new ArrayList<>();
+                for (Long requestId : requestIds) {
+                    if (!moderated.contains(requestId)) {
+                        skipped.add(requestId);
+                    }
+                }
+                if (requestModerationRepository.existsNotPending(eventId, skipped)) {
+                    throw new ConflictException("Request должен иметь статус PENDING.");
+                }
             }
         }
 
-        result.setConfirmedRequests(returnRequestDtoList(confirmedRequests));
-        result.setRejectedRequests(returnRequestDtoList(rejectedRequests));
+        if (Boolean.TRUE.equals(requestDto.getRejectRemaining())
+                && eventRepository.findConfirmedRequests(eventId) >= event.getParticipantLimit()) {
+            rejectedRequests.addAll(requestModerationRepository.rejectAllPending(eventId));
+        }
 
-        eventRepository.save(event);
-        requestRepository.saveAll(requestsList);
+        result.setConfirmedRequests(confirmedRequests);
+        result.setRejectedRequests(rejectedRequests);
+
+        if (!confirmedRequests.isEmpty()) {
+            pinnedCompilationsCache.invalidate();
+        }
 
         return result;
     }
@@ -210,7 +258,7 @@ public class EventServiceImpl implements EventService {
 
     @Transactional(readOnly = true)
     @Override
-    public List<EventFullDto> getEventsByAdmin(List<Long> users, List<String> states, List<Long> categories, String rangeStart, String rangeEnd, Integer from, Integer size) {
+    public CursorPage<EventFullDto> getEventsByAdmin(List<Long> users, List<String> states, List<Long> categories, String rangeStart, String rangeEnd, String after, Integer from, Integer size) {
 
         LocalDateTime startTime = parseDate(rangeStart);
         LocalDateTime endTime = parseDate(rangeEnd);
@@ -229,10 +277,11 @@ public class EventServiceImpl implements EventService {
             }
         }
 
-        PageRequest pageRequest = PageRequest.of(from / size, size);
-        List<Event> events = eventRepository.findEventsByAdminFromParam(users, statesValue, categories, startTime, endTime, pageRequest);
+        PageCursor cursor = PageCursor.decode(after);
+        PageRequest pageRequest = PageCursor.pageRequest(cursor, from, size);
+        List<Event> events = eventRepository.findEventsByAdminFromParam(PageCursor.afterId(cursor), users, statesValue, categories, startTime, endTime, pageRequest);
 
-        return returnEventFullDtoList(events);
+        return CursorPage.of(returnEventFullDtoList(events), size, event -> PageCursor.byId(event.getId()));
     }
 
     @Transactional(readOnly = true)
@@ -245,15 +294,15 @@ public class EventServiceImpl implements EventService {
         }
 
         sendInfo(uri, ip);
-        event.setViews(getViewsEventById(event.getId()));
-        eventRepository.save(event);
+        EventFullDto eventFullDto = returnEventFullDto(event);
+        eventFullDto.setViews(eventViewsCache.getViews(event.getId()));
 
-        return returnEventFullDto(event);
+        return eventFullDto;
     }
 
     @Transactional(readOnly = true)
     @Override
-    public List<EventShortDto> getEventsByPublic(String text, List<Long> categories, Boolean paid, String rangeStart, String rangeEnd, Boolean onlyAvailable, String sort, Integer from, Integer size, String uri, String ip) {
+    public CursorPage<EventShortDto> getEventsByPublic(String text, List<Long> categories, Boolean paid, String rangeStart, String rangeEnd, Boolean onlyAvailable, String sort, Float lat, Float lon, Float radius, String after, Integer from, Integer size, String uri, String ip) {
 
         LocalDateTime startTime = parseDate(rangeStart);
         LocalDateTime endTime = parseDate(rangeEnd);
@@ -264,16 +313,75 @@ public class EventServiceImpl implements EventService {
             }
         }
 
-        PageRequest pageRequest = PageRequest.of(from / size, size);
-        List<Event> events = eventRepository.findEventsByPublicFromParam(text, categories, paid, startTime, endTime, onlyAvailable, sort, pageRequest);
+        PageCursor cursor = PageCursor.decode(after);
+        PageRequest pageRequest = PageCursor.pageRequest(cursor, from, size);
+        String prefixQuery = EventSearchRepository.toPrefixQuery(text);
+        EventSort eventSort = EventSort.getSortValue(sort);
+        GeoArea area = GeoArea.of(lat, lon, radius);
+        if (area != null && eventSort == null) {
+            eventSort = EventSort.DISTANCE;
+        } else if (area == null && eventSort == EventSort.DISTANCE) {
+            throw new ValidationException("Сортировка DISTANCE требует lat, lon и radius.");
+        }
+        Map<Long, String> sortKeys = null;
+        List<Event> events;
+        if (prefixQuery != null || eventSort != null) {
+            sortKeys = eventSearchRepository.searchPublished(prefixQuery, eventSort, categories, paid, startTime, endTime,
+                    onlyAvailable, area, cursor, (int) pageRequest.getOffset(), size);
+            events = findEventsInOrder(new ArrayList<>(sortKeys.keySet()));
+        } else {
+            events = eventRepository.findEventsByPublicFromParam(PageCursor.afterId(cursor), null, categories, paid, startTime, endTime, onlyAvailable, pageRequest);
+        }
 
         sendInfo(uri, ip);
+        List<EventShortDto> eventShortDtoList = returnEventShortDtoList(events);
+        List<Long> eventIds = new ArrayList<>();
         for (Event event : events) {
-            event.setViews(getViewsEventById(event.getId()));
-            eventRepository.save(event);
+            eventIds.add(event.getId());
+        }
+        Map<Long, Long> views = eventViewsCache.getViews(eventIds);
+        for (EventShortDto eventShortDto : eventShortDtoList) {
+            eventShortDto.setViews(views.getOrDefault(eventShortDto.getId(), 0L));
+        }
+
+        if (sortKeys != null) {
+            Map<Long, String> eventSortKeys = sortKeys;
+            return CursorPage.of(eventShortDtoList, size, event -> new PageCursor(eventSortKeys.get(event.getId()), event.getId()));
+        }
+        return CursorPage.of(eventShortDtoList, size, event -> PageCursor.byId(event.getId()));
+    }
+
+    private long reserveConfirmedRequests(Event event, long requested) {
+
+        long confirmed = event.getConfirmedRequests();
+        while (true) {
+            long count = event.getParticipantLimit() == 0 ? requested : Math.min(requested, event.getParticipantLimit() - confirmed);
+            if (count <= 0) {
+                throw new ConflictException("Превышен лимит участников.");
+            }
+            if (eventRepository.reserveConfirmedRequests(event.getId(), count) > 0) {
+                return count;
+            }
+            confirmed = eventRepository.findConfirmedRequests(event.getId());
+        }
+    }
+
+    private List<Event> findEventsInOrder(List<Long> eventIds) {
+
+        if (eventIds.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        return returnEventShortDtoList(events);
+        Map<Long, Event> eventsById = new HashMap<>();
+        for (Event event : eventRepository.findByIdIn(new HashSet<>(eventIds))) {
+            eventsById.put(event.getId(), event);
+        }
+
+        List<Event> events = new ArrayList<>();
+        for (Long eventId : eventIds) {
+            events.add(eventsById.get(eventId));
+        }
+        return events;
     }
 
     private Event baseUpdateEvent(Event event, EventUpdateDto eventUpdateDto) {
@@ -292,7 +400,8 @@ public class EventServiceImpl implements EventService {
             event.setEventDate(eventUpdateDto.getEventDate());
         }
         if (eventUpdateDto.getLocation() != null) {
-            event.setLocation(LocationMapper.returnLocation(eventUpdateDto.getLocation()));
+            event.getLocation().setLat(eventUpdateDto.getLocation().getLat());
+            event.getLocation().setLon(eventUpdateDto.getLocation().getLon());
         }
         if (eventUpdateDto.getPaid() != null) {
             event.setPaid(eventUpdateDto.getPaid());
@@ -318,8 +427,13 @@ public class EventServiceImpl implements EventService {
             event.setTitle(eventUpdateDto.getTitle());
         }
 
-        locationRepository.save(event.getLocation());
-        return eventRepository.save(event);
+        pinnedCompilationsCache.invalidate();
+        requestAdmission.invalidate(event.getId());
+        Event savedEvent = eventRepository.save(event);
+        if (savedEvent.getState() == PUBLISHED) {
+            eventViewsRepository.initialize(savedEvent.getId());
+        }
+        return savedEvent;
     }
 
     private void sendInfo(String uri, String ip) {
@@ -329,21 +443,7 @@ public class EventServiceImpl implements EventService {
                 .ip(ip)
                 .timestamp(LocalDateTime.now())
                 .build();
-        client.addHit(hitDto);
-    }
-
-    private Long getViewsEventById(Long eventId) {
-
-        String uri = "/events/" + eventId;
-        ResponseEntity<Object> response = client.findStats(START_HISTORY, LocalDateTime.now(), uri, true);
-        List<StatsDto> result = objectMapper.convertValue(response.getBody(), new TypeReference<>() {
-        });
-
-        if (result.isEmpty()) {
-            return 0L;
-        } else {
-            return result.get(0).getHits();
-        }
+        hitSender.addHit(hitDto);
     }
 
     public LocalDateTime parseDate(String date) {
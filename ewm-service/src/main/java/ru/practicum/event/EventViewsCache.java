@@ -0,0 +1,147 @@
+package ru.practicum.event;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import ru.practicum.StatsClient;
+import ru.practicum.dto.StatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static ru.practicum.Util.START_HISTORY;
+
+/**
+ * Кэш просмотров событий по uri. Устаревшая запись отдаётся сразу,
+ * а обновляется в фоне, поэтому прогретый кэш не ждёт stats-server.
+ */
+@Slf4j
+@Component
+public class EventViewsCache {
+
+    private static final String EVENTS_URI_PREFIX = "/events/";
+
+    private final StatsClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoadingCache<String, Long> cache;
+
+    public EventViewsCache(StatsClient client,
+                           MeterRegistry meterRegistry,
+                           @Value("${ewm.views-cache.max-size:100000}") long maxSize,
+                           @Value("${ewm.views-cache.refresh-after:5s}") Duration refreshAfter,
+                           @Value("${ewm.views-cache.expire-after:10m}") Duration expireAfter) {
+        this.client = client;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(refreshAfter)
+                .expireAfterWrite(expireAfter)
+                .recordStats()
+                .build(new ViewsLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "eventViews");
+    }
+
+    public Long getViews(Long eventId) {
+
+        return getViews(List.of(eventId)).getOrDefault(eventId, 0L);
+    }
+
+    public Map<Long, Long> getViews(List<Long> eventIds) {
+
+        Map<Long, Long> views = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return views;
+        }
+
+        List<String> uris = new ArrayList<>();
+        for (Long eventId : eventIds) {
+            uris.add(EVENTS_URI_PREFIX + eventId);
+        }
+
+        try {
+            cache.getAll(uris).forEach((uri, hits) -> views.put(Long.valueOf(uri.substring(EVENTS_URI_PREFIX.length())), hits));
+        } catch (RuntimeException e) {
+            log.warn("Не удалось получить просмотры из stats-server: {}", e.getMessage());
+        }
+        return views;
+    }
+
+    public Map<Long, Long> loadViews(List<Long> eventIds) {
+
+        List<String> uris = new ArrayList<>();
+        for (Long eventId : eventIds) {
+            uris.add(EVENTS_URI_PREFIX + eventId);
+        }
+
+        Map<Long, Long> views = new HashMap<>();
+        findViews(uris).forEach((uri, hits) -> views.put(Long.valueOf(uri.substring(EVENTS_URI_PREFIX.length())), hits));
+        return views;
+    }
+
+    /**
+     * id событий, у которых были hits в [start, end], по неуникальной статистике всех uri.
+     */
+    public Set<Long> findViewedEventIds(LocalDateTime start, LocalDateTime end) {
+
+        Set<Long> eventIds = new HashSet<>();
+        for (StatsDto statsDto : findStats(start, end, List.of(), false)) {
+            String uri = statsDto.getUri();
+            if (uri.startsWith(EVENTS_URI_PREFIX) && uri.length() > EVENTS_URI_PREFIX.length()
+                    && uri.chars().skip(EVENTS_URI_PREFIX.length()).allMatch(Character::isDigit)) {
+                eventIds.add(Long.valueOf(uri.substring(EVENTS_URI_PREFIX.length())));
+            }
+        }
+        return eventIds;
+    }
+
+    private Map<String, Long> findViews(Iterable<? extends String> uris) {
+
+        List<String> uriList = new ArrayList<>();
+        Map<String, Long> views = new HashMap<>();
+        for (String uri : uris) {
+            uriList.add(uri);
+            views.put(uri, 0L);
+        }
+
+        for (StatsDto statsDto : findStats(START_HISTORY, LocalDateTime.now(), uriList, true)) {
+            views.merge(statsDto.getUri(), statsDto.getHits(), Long::sum);
+        }
+        return views;
+    }
+
+    private List<StatsDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+
+        ResponseEntity<Object> response = client.findStats(start, end, uris, unique, false);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new IllegalStateException("stats-server ответил " + response.getStatusCode());
+        }
+        return objectMapper.convertValue(response.getBody(), new TypeReference<>() {
+        });
+    }
+
+    private class ViewsLoader implements CacheLoader<String, Long> {
+
+        @Override
+        public Long load(String uri) {
+            return findViews(List.of(uri)).get(uri);
+        }
+
+        @Override
+        public Map<String, Long> loadAll(Iterable<? extends String> uris) {
+            return findViews(uris);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.event;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Локальная копия просмотров опубликованных событий (event_views) для сортировки по VIEWS.
+ * Строка заводится при публикации и периодически обновляется из stats-server.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EventViewsRepository {
+
+    private static final String UPSERT = "INSERT INTO event_views (event_id, views) VALUES (?, ?) " +
+            "ON CONFLICT (event_id) DO UPDATE SET views = EXCLUDED.views " +
+            "WHERE event_views.views <> EXCLUDED.views";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public void initialize(Long eventId) {
+        jdbcTemplate.update("INSERT INTO event_views (event_id) VALUES (?) ON CONFLICT (event_id) DO NOTHING", eventId);
+    }
+
+    public void saveAll(Map<Long, Long> views) {
+
+        List<Object[]> args = new ArrayList<>();
+        views.forEach((eventId, count) -> args.add(new Object[]{eventId, count}));
+        jdbcTemplate.batchUpdate(UPSERT, args);
+    }
+
+    public List<Long> findPublishedEventIds(Collection<Long> eventIds) {
+        return namedParameterJdbcTemplate.queryForList("SELECT id FROM events WHERE state = 'PUBLISHED' AND id IN (:ids) ORDER BY id",
+                new MapSqlParameterSource("ids", eventIds), Long.class);
+    }
+}
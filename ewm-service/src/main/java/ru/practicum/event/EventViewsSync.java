@@ -0,0 +1,65 @@
+package ru.practicum.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static ru.practicum.Util.START_HISTORY;
+
+/**
+ * Периодически переносит просмотры опубликованных событий из stats-server в event_views.
+ * Пересчитываются только события с hits после прошлой успешной синхронизации (с запасом overlap на hits,
+ * пришедшие с опозданием); первая синхронизация после старта проходит по всей истории.
+ */
+@Slf4j
+@Component
+public class EventViewsSync {
+
+    private final EventViewsRepository eventViewsRepository;
+    private final EventViewsCache eventViewsCache;
+    private final int chunkSize;
+    private final Duration overlap;
+    private LocalDateTime syncedUntil;
+
+    public EventViewsSync(EventViewsRepository eventViewsRepository,
+                          EventViewsCache eventViewsCache,
+                          @Value("${ewm.views-sync.chunk-size:500}") int chunkSize,
+                          @Value("${ewm.views-sync.overlap:1m}") Duration overlap) {
+        this.eventViewsRepository = eventViewsRepository;
+        this.eventViewsCache = eventViewsCache;
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+    }
+
+    @Scheduled(initialDelayString = "${ewm.views-sync.initial-delay-ms:30000}",
+            fixedDelayString = "${ewm.views-sync.interval-ms:300000}")
+    public void sync() {
+
+        LocalDateTime until = LocalDateTime.now();
+        LocalDateTime since = syncedUntil == null ? START_HISTORY : syncedUntil.minus(overlap);
+        int synced = 0;
+        try {
+            List<Long> viewed = new ArrayList<>(eventViewsCache.findViewedEventIds(since, until));
+            Collections.sort(viewed);
+            for (int from = 0; from < viewed.size(); from += chunkSize) {
+                List<Long> eventIds = eventViewsRepository.findPublishedEventIds(
+                        viewed.subList(from, Math.min(from + chunkSize, viewed.size())));
+                if (!eventIds.isEmpty()) {
+                    eventViewsRepository.saveAll(eventViewsCache.loadViews(eventIds));
+                    synced += eventIds.size();
+                }
+            }
+            syncedUntil = until;
+            log.info("Просмотры синхронизированы для {} событий с hits после {}.", synced, since);
+        } catch (RuntimeException e) {
+            log.warn("Синхронизация просмотров прервана после {} событий: {}", synced, e.getMessage());
+        }
+    }
+}
@@ -2,12 +2,17 @@ package ru.practicum.event.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.event.EventService;
 import ru.practicum.event.dto.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.request.RequestExportFormat;
 import ru.practicum.request.dto.RequestDto;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -28,14 +33,20 @@ public class EventController {
                                                  @RequestParam(required = false, name = "rangeEnd") String rangeEnd,
                                                  @RequestParam(required = false, defaultValue = "false", name = "onlyAvailable") Boolean onlyAvailable,
                                                  @RequestParam(required = false, name = "sort") String sort,
+                                                 @RequestParam(required = false, name = "lat") Float lat,
+                                                 @RequestParam(required = false, name = "lon") Float lon,
+                                                 @RequestParam(required = false, name = "radius") Float radius,
                                                  @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
                                                  @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
-                                                 HttpServletRequest request) {
+                                                 @RequestParam(required = false, name = "after") String after,
+                                                 HttpServletRequest request,
+                                                 HttpServletResponse response) {
 
         String uri = request.getRequestURI();
         String ip = request.getRemoteAddr();
 
-        return eventService.getEventsByPublic(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size, uri, ip);
+        return eventService.getEventsByPublic(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, lat, lon, radius, after, from, size, uri, ip)
+                .writeTo(response);
     }
 
     @GetMapping("/events/{id}")
@@ -56,9 +67,11 @@ public class EventController {
                                                @RequestParam(required = false, name = "rangeStart") String rangeStart,
                                                @RequestParam(required = false, name = "rangeEnd") String rangeEnd,
                                                @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                               @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                               @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                               @RequestParam(required = false, name = "after") String after,
+                                               HttpServletResponse response) {
 
-        return eventService.getEventsByAdmin(users, states, categories, rangeStart, rangeEnd, from, size);
+        return eventService.getEventsByAdmin(users, states, categories, rangeStart, rangeEnd, after, from, size).writeTo(response);
     }
 
     @PatchMapping("/admin/events/{eventId}")
@@ -81,9 +94,11 @@ public class EventController {
     @ResponseStatus(value = HttpStatus.OK)
     public List<EventShortDto> getAllEventsByUserId(@PathVariable Long userId,
                                                     @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                                    @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+                                                    @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                    @RequestParam(required = false, name = "after") String after,
+                                                    HttpServletResponse response) {
         ;
-        return eventService.getAllEventsByUserId(userId, from, size);
+        return eventService.getAllEventsByUserId(userId, after, from, size).writeTo(response);
     }
 
     @GetMapping("/users/{userId}/events/{eventId}")
@@ -111,6 +126,18 @@ public class EventController {
         return eventService.getRequestsForEventIdByUserId(userId, eventId);
     }
 
+    @GetMapping(value = "/users/{userId}/events/{eventId}/requests", params = "format")
+    public ResponseEntity<StreamingResponseBody> exportRequestsForEventIdByUserId(@PathVariable Long userId,
+                                                                                  @PathVariable Long eventId,
+                                                                                  @RequestParam(name = "format") String format) {
+
+        RequestExportFormat exportFormat = RequestExportFormat.getFormatValue(format);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .body(eventService.exportRequestsForEventIdByUserId(userId, eventId, exportFormat));
+    }
+
     @PatchMapping("/users/{userId}/events/{eventId}/requests")
     @ResponseStatus(value = HttpStatus.OK)
     private RequestUpdateDtoResult updateStatusRequestsForEventIdByUserId(@PathVariable Long userId,
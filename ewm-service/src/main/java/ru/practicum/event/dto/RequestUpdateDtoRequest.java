@@ -16,5 +16,7 @@ public class RequestUpdateDtoRequest {
     List<Long> requestIds;
 
     Status status;
+
+    Boolean rejectRemaining;
 }
 
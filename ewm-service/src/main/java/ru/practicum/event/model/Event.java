@@ -55,7 +55,7 @@ public class Event {
     @Column(name = "description")
     String description;
 
-    @JoinColumn(name = "confirmed_requests")
+    @Column(name = "confirmed_requests", updatable = false)
     Long confirmedRequests;
 
     @Column(name = "participant_limit")
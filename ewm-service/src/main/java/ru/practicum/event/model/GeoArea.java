@@ -0,0 +1,65 @@
+package ru.practicum.event.model;
+
+import lombok.Value;
+import ru.practicum.exception.ValidationException;
+
+/**
+ * Круг поиска: центр lat/lon в градусах и радиус в километрах.
+ * Описанный прямоугольник отдаёт кандидатов из GiST-индекса locations, точное расстояние считается по гаверсинусу.
+ */
+@Value
+public class GeoArea {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    private static final double MAX_RADIUS_KM = 1000;
+
+    double lat;
+    double lon;
+    double radius;
+
+    public static GeoArea of(Float lat, Float lon, Float radius) {
+
+        if (lat == null && lon == null && radius == null) {
+            return null;
+        }
+        if (lat == null || lon == null || radius == null) {
+            throw new ValidationException("Для поиска по месту нужны lat, lon и radius.");
+        }
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            throw new ValidationException("Некорректные координаты: " + lat + ", " + lon);
+        }
+        if (radius <= 0 || radius > MAX_RADIUS_KM) {
+            throw new ValidationException("radius должен быть больше 0 и не больше " + (int) MAX_RADIUS_KM + " км.");
+        }
+        return new GeoArea(lat, lon, radius);
+    }
+
+    public double getMinLat() {
+        return Math.max(lat - radius / KM_PER_DEGREE, -90);
+    }
+
+    public double getMaxLat() {
+        return Math.min(lat + radius / KM_PER_DEGREE, 90);
+    }
+
+    public double getMinLon() {
+        double delta = lonDelta();
+        return delta < 0 ? -180 : lon - delta;
+    }
+
+    public double getMaxLon() {
+        double delta = lonDelta();
+        return delta < 0 ? 180 : lon + delta;
+    }
+
+    private double lonDelta() {
+
+        double cos = Math.cos(Math.toRadians(Math.max(Math.abs(getMinLat()), Math.abs(getMaxLat()))));
+        if (cos < 1e-6) {
+            return -1;
+        }
+        double delta = radius / (KM_PER_DEGREE * cos);
+        return lon - delta < -180 || lon + delta > 180 ? -1 : delta;
+    }
+}
@@ -40,4 +40,10 @@ public class ErrorHandler {
     public ErrorResponse handleEmailExistException(final ConflictException e) {
         return new ErrorResponse(e.getMessage());
     }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ErrorResponse handleTooManyRequestsException(final TooManyRequestsException e) {
+        return new ErrorResponse(e.getMessage());
+    }
 }
\ No newline at end of file
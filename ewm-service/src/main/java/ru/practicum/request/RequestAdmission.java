@@ -0,0 +1,468 @@
+package ru.practicum.request;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.compilation.PinnedCompilationsCache;
+import ru.practicum.event.EventRepository;
+import ru.practicum.exception.ConflictException;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.request.RequestAdmissionRepository.AdmissionEvent;
+import ru.practicum.request.dto.RequestDto;
+import ru.practicum.util.enums.State;
+import ru.practicum.util.enums.Status;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Приём заявок на участие в событиях без модерации под высокой конкуренцией.
+ * Для каждого такого события в памяти держится счётчик свободных мест (StripedCapacity), который решает,
+ * принять заявку или отказать; отказ по лимиту не обращается к БД. Принятые заявки пишет один поток
+ * пачками: на пачку одного события - одно резервирование мест в events и одна вставка в requests.
+ * Поток запроса ждёт записи своей пачки не дольше wait-timeout и возвращает созданную заявку.
+ * Заявку забирает либо писатель перед записью её события, либо ждущий поток (Admission.claim): если по таймауту
+ * её забрал поток запроса или при остановке её забрал stop(), место возвращается и заявка уходит обычным путём.
+ * Писатель забирает заявки события прямо перед его транзакцией, а транзакция ограничена тем же таймаутом
+ * (с округлением до секунд), поэтому забранная писателем заявка дожидается записи или отката; при откате
+ * места возвращаются и заявки тоже уходят обычным путём.
+ */
+@Slf4j
+@Component
+public class RequestAdmission {
+
+    private final RequestAdmissionRepository admissionRepository;
+    private final EventRepository eventRepository;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int stripes;
+    private final int batchSize;
+    private final long waitTimeoutMillis;
+    private final long claimedWaitMillis;
+    private final BlockingQueue<Admission> queue;
+    private final Cache<Long, Optional<EventSlot>> slots;
+
+    private final Counter acceptedRequests;
+    private final Counter rejectedRequests;
+    private final Counter timedOutRequests;
+    private final Timer writeTimer;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public RequestAdmission(RequestAdmissionRepository admissionRepository,
+                            EventRepository eventRepository,
+                            PinnedCompilationsCache pinnedCompilationsCache,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${ewm.admission.enabled:true}") boolean enabled,
+                            @Value("${ewm.admission.stripes:0}") int stripes,
+                            @Value("${ewm.admission.queue-capacity:10000}") int queueCapacity,
+                            @Value("${ewm.admission.batch-size:500}") int batchSize,
+                            @Value("${ewm.admission.max-events:10000}") long maxEvents,
+                            @Value("${ewm.admission.idle-expire:10m}") Duration idleExpire,
+                            @Value("${ewm.admission.wait-timeout:5s}") Duration waitTimeout) {
+        this.admissionRepository = admissionRepository;
+        this.eventRepository = eventRepository;
+        this.pinnedCompilationsCache = pinnedCompilationsCache;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        int transactionTimeout = (int) Math.max(1, (waitTimeout.toMillis() + 999) / 1000);
+        this.transactionTemplate.setTimeout(transactionTimeout);
+        this.enabled = enabled;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.batchSize = batchSize;
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+        this.claimedWaitMillis = transactionTimeout * 1000L + waitTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.slots = Caffeine.newBuilder()
+                .maximumSize(maxEvents)
+                .expireAfterAccess(idleExpire)
+                .build();
+
+        Gauge.builder("requests.admission.queue.size", queue, BlockingQueue::size)
+                .description("Accepted participation requests waiting to be written")
+                .register(meterRegistry);
+        this.acceptedRequests = Counter.builder("requests.admission.accepted")
+                .description("Participation requests confirmed through admission")
+                .register(meterRegistry);
+        this.rejectedRequests = Counter.builder("requests.admission.rejected")
+                .description("Participation requests rejected by the in-memory capacity counter")
+                .register(meterRegistry);
+        this.timedOutRequests = Counter.builder("requests.admission.timeouts")
+                .description("Admitted participation requests not written within the wait timeout and sent the regular way")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("requests.admission.write")
+                .description("Time to write one batch of admitted requests of an event")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return созданная заявка или null, если событие обслуживается обычным путём
+     */
+    public RequestDto tryAdmit(Long userId, Long eventId) {
+
+        if (!running) {
+            return null;
+        }
+
+        Optional<EventSlot> slot = slots.get(eventId, this::loadSlot);
+        if (slot.isEmpty()) {
+            return null;
+        }
+
+        EventSlot eventSlot = slot.get();
+        if (eventSlot.initiatorId == userId) {
+            throw new ConflictException("По такому user id нельзя отправить request на участие в event.");
+        }
+        if (!eventSlot.tryAcquire()) {
+            rejectedRequests.increment();
+            throw new ConflictException("Превышен лимит.");
+        }
+
+        Admission admission = new Admission(eventSlot, userId);
+        if (!queue.offer(admission)) {
+            eventSlot.release(1);
+            return null;
+        }
+        if (!running && admission.claim()) {
+            eventSlot.release(1);
+            return null;
+        }
+
+        return await(admission);
+    }
+
+    public void invalidate(Long eventId) {
+        afterCommit(() -> slots.invalidate(eventId));
+    }
+
+    public void release(Long eventId) {
+        afterCommit(() -> {
+            Optional<EventSlot> slot = slots.getIfPresent(eventId);
+            if (slot != null) {
+                slot.ifPresent(eventSlot -> eventSlot.release(1));
+            }
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::run, "request-admission-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer.join(10000);
+
+        Admission admission;
+        while ((admission = queue.poll()) != null) {
+            if (admission.claim()) {
+                admission.slot.release(1);
+                admission.result.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Ждёт запись не дольше wait-timeout. Если писатель за это время заявку не забрал, её забирает поток запроса
+     * и она уходит обычным путём; если уже забрал, ждёт конца его транзакции (claimedWaitMillis).
+     */
+    private RequestDto await(Admission admission) {
+
+        try {
+            try {
+                return admission.result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (admission.claim()) {
+                    admission.slot.release(1);
+                    timedOutRequests.increment();
+                    log.warn("Заявка на событие {} не дождалась записи за {} мс, обрабатывается обычным путём.",
+                            admission.slot.eventId, waitTimeoutMillis);
+                    return null;
+                }
+                return admission.result.get(claimedWaitMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Заявка на событие " + admission.slot.eventId + " не записана за "
+                    + (waitTimeoutMillis + claimedWaitMillis) + " мс.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (admission.claim()) {
+                admission.slot.release(1);
+            }
+            throw new IllegalStateException("Ожидание записи заявки прервано.");
+        }
+    }
+
+    private Optional<EventSlot> loadSlot(Long eventId) {
+
+        AdmissionEvent event = admissionRepository.findEvent(eventId);
+        if (event == null || !State.PUBLISHED.name().equals(event.getState())
+                || (event.isRequestModeration() && event.getParticipantLimit() != 0)) {
+            return Optional.empty();
+        }
+
+        StripedCapacity capacity = event.getParticipantLimit() == 0
+                ? null
+                : new StripedCapacity(event.getParticipantLimit() - event.getConfirmedRequests(), stripes);
+        return Optional.of(new EventSlot(event.getId(), event.getInitiatorId(), event.getParticipantLimit(), capacity));
+    }
+
+    private void run() {
+
+        List<Admission> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Admission first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                log.debug("Поток записи заявок прерван, осталось в очереди: {}", queue.size());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Admission> batch) {
+
+        Map<EventSlot, List<Admission>> byEvent = new LinkedHashMap<>();
+        for (Admission admission : batch) {
+            byEvent.computeIfAbsent(admission.slot, slot -> new ArrayList<>()).add(admission);
+        }
+
+        byEvent.forEach((slot, queued) -> {
+            List<Admission> admissions = new ArrayList<>();
+            for (Admission admission : queued) {
+                if (admission.claim()) {
+                    admissions.add(admission);
+                }
+            }
+            if (admissions.isEmpty()) {
+                return;
+            }
+            try {
+                writeTimer.record(() -> writeEvent(slot, admissions));
+            } catch (RuntimeException e) {
+                log.warn("Не удалось записать {} заявок на событие {}: {}", admissions.size(), slot.eventId, e.getMessage());
+                for (Admission admission : admissions) {
+                    if (!admission.result.isDone()) {
+                        slot.release(1);
+                        admission.result.completeExceptionally(e);
+                    }
+                }
+            }
+        });
+    }
+
+    private void writeEvent(EventSlot slot, List<Admission> admissions) {
+
+        List<Admission> unique = new ArrayList<>();
+        Set<Long> requesters = new HashSet<>();
+        for (Admission admission : admissions) {
+            if (requesters.add(admission.userId)) {
+                unique.add(admission);
+            } else {
+                slot.release(1);
+                admission.result.completeExceptionally(new ConflictException("Заявка уже была подана."));
+            }
+        }
+
+        LocalDateTime created = LocalDateTime.now();
+        WriteResult written;
+        try {
+            written = transactionTemplate.execute(status -> {
+                int reserved = reserve(slot, unique.size());
+                List<Long> requesterIds = new ArrayList<>();
+                for (Admission admission : unique.subList(0, reserved)) {
+                    requesterIds.add(admission.userId);
+                }
+
+                Map<Long, Long> requestIds = requesterIds.isEmpty()
+                        ? Map.of()
+                        : admissionRepository.insertConfirmed(slot.eventId, requesterIds, created);
+                if (requestIds.size() < reserved) {
+                    eventRepository.releaseConfirmedRequests(slot.eventId, reserved - requestIds.size());
+                }
+                return new WriteResult(reserved, requestIds);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Не удалось записать {} заявок на событие {}, они обрабатываются обычным путём: {}",
+                    unique.size(), slot.eventId, e.getMessage());
+            for (Admission admission : unique) {
+                slot.release(1);
+                admission.result.complete(null);
+            }
+            return;
+        }
+
+        List<Long> notInserted = new ArrayList<>();
+        for (Admission admission : unique.subList(0, written.reserved)) {
+            if (!written.requestIds.containsKey(admission.userId)) {
+                notInserted.add(admission.userId);
+            }
+        }
+        Set<Long> existingUsers = notInserted.isEmpty() ? Set.of() : admissionRepository.findExistingUserIds(notInserted);
+
+        for (int i = 0; i < unique.size(); i++) {
+            Admission admission = unique.get(i);
+            Long requestId = written.requestIds.get(admission.userId);
+
+            if (i >= written.reserved) {
+                slot.drain();
+                admission.result.completeExceptionally(new ConflictException("Превышен лимит."));
+            } else if (requestId != null) {
+                acceptedRequests.increment();
+                admission.result.complete(RequestDto.builder()
+                        .id(requestId)
+                        .created(created)
+                        .event(slot.eventId)
+                        .requester(admission.userId)
+                        .status(Status.CONFIRMED)
+                        .build());
+            } else if (!existingUsers.contains(admission.userId)) {
+                slot.release(1);
+                admission.result.completeExceptionally(
+                        new NotFoundException("Пользователя с id " + admission.userId + " не существует"));
+            } else {
+                slot.release(1);
+                admission.result.completeExceptionally(new ConflictException("Заявка уже была подана."));
+            }
+        }
+
+        if (!written.requestIds.isEmpty()) {
+            pinnedCompilationsCache.invalidate();
+        }
+    }
+
+    private int reserve(EventSlot slot, int requested) {
+
+        int count = requested;
+        while (count > 0 && eventRepository.reserveConfirmedRequests(slot.eventId, count) == 0) {
+            long confirmed = eventRepository.findConfirmedRequests(slot.eventId);
+            count = (int) Math.min(requested, Math.max(slot.participantLimit - confirmed, 0));
+        }
+        return count;
+    }
+
+    private static void afterCommit(Runnable action) {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static class EventSlot {
+
+        private final long eventId;
+        private final long initiatorId;
+        private final long participantLimit;
+        private final StripedCapacity capacity;
+
+        EventSlot(long eventId, long initiatorId, long participantLimit, StripedCapacity capacity) {
+            this.eventId = eventId;
+            this.initiatorId = initiatorId;
+            this.participantLimit = participantLimit;
+            this.capacity = capacity;
+        }
+
+        boolean tryAcquire() {
+            return capacity == null || capacity.tryAcquire();
+        }
+
+        void release(long count) {
+            if (capacity != null) {
+                capacity.release(count);
+            }
+        }
+
+        void drain() {
+            if (capacity != null) {
+                capacity.drain();
+            }
+        }
+    }
+
+    private static class Admission {
+
+        private final EventSlot slot;
+        private final long userId;
+        private final CompletableFuture<RequestDto> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Admission(EventSlot slot, long userId) {
+            this.slot = slot;
+            this.userId = userId;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    private static class WriteResult {
+
+        private final int reserved;
+        private final Map<Long, Long> requestIds;
+
+        WriteResult(int reserved, Map<Long, Long> requestIds) {
+            this.reserved = reserved;
+            this.requestIds = requestIds;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.practicum.request;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Repository
+@RequiredArgsConstructor
+public class RequestAdmissionRepository {
+
+    private static final String INSERT_CONFIRMED = "INSERT INTO requests (event_id, requester_id, status, created) " +
+            "SELECT ?, u.id, 'CONFIRMED', ? FROM unnest(?::BIGINT[]) AS r(id) JOIN users AS u ON u.id = r.id " +
+            "ON CONFLICT (event_id, requester_id) DO NOTHING " +
+            "RETURNING id, requester_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public AdmissionEvent findEvent(Long eventId) {
+
+        List<AdmissionEvent> events = jdbcTemplate.query("SELECT id, initiator_id, participant_limit, confirmed_requests, " +
+                        "request_moderation, state FROM events WHERE id = ?",
+                (rs, rowNum) -> new AdmissionEvent(rs.getLong("id"), rs.getLong("initiator_id"),
+                        rs.getLong("participant_limit"), rs.getLong("confirmed_requests"),
+                        rs.getBoolean("request_moderation"), rs.getString("state")),
+                eventId);
+        return events.isEmpty() ? null : events.get(0);
+    }
+
+    /**
+     * Вставляет подтверждённые заявки одной командой. Несуществующие пользователи и уже поданные заявки пропускаются.
+     *
+     * @return id созданных заявок по id пользователя
+     */
+    public Map<Long, Long> insertConfirmed(Long eventId, List<Long> requesterIds, LocalDateTime created) {
+
+        return jdbcTemplate.execute((ConnectionCallback<Map<Long, Long>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_CONFIRMED)) {
+                statement.setLong(1, eventId);
+                statement.setTimestamp(2, Timestamp.valueOf(created));
+                statement.setArray(3, connection.createArrayOf("bigint", requesterIds.toArray()));
+
+                Map<Long, Long> requestIds = new HashMap<>();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        requestIds.put(rs.getLong("requester_id"), rs.getLong("id"));
+                    }
+                }
+                return requestIds;
+            }
+        });
+    }
+
+    public Set<Long> findExistingUserIds(Collection<Long> userIds) {
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList("SELECT id FROM users WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", userIds), Long.class));
+    }
+
+    @Value
+    public static class AdmissionEvent {
+        long id;
+        long initiatorId;
+        long participantLimit;
+        long confirmedRequests;
+        boolean requestModeration;
+        String state;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.request;
+
+import ru.practicum.exception.ValidationException;
+
+import java.util.Locale;
+
+public enum RequestExportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    RequestExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static RequestExportFormat getFormatValue(String format) {
+        try {
+            return RequestExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (Exception e) {
+            throw new ValidationException("Неизвестный формат выгрузки: " + format);
+        }
+    }
+}
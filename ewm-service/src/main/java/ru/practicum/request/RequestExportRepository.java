@@ -0,0 +1,44 @@
+package ru.practicum.request;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.TransactionTimedOutException;
+import ru.practicum.request.dto.RequestDto;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Читает заявки события серверным курсором: внутри транзакции драйвер PostgreSQL
+ * выбирает строки порциями по fetch-size, не загружая весь результат в память.
+ * Чтение прерывается, если длится дольше timeout, а между порциями сессия простаивает в транзакции
+ * не дольше timeout (idle_in_transaction_session_timeout), даже если поток застрял на записи ответа.
+ */
+@Repository
+public class RequestExportRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RequestExportRepository(DataSource dataSource,
+                                   @Value("${ewm.requests.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public void forEachByEventId(Long eventId, Duration timeout, Consumer<RequestDto> consumer) {
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        jdbcTemplate.execute("SET LOCAL idle_in_transaction_session_timeout = " + timeout.toMillis());
+        jdbcTemplate.query("SELECT id, created, event_id, requester_id, status FROM requests " +
+                        "WHERE event_id = ? ORDER BY id",
+                rs -> {
+                    if (System.nanoTime() > deadline) {
+                        throw new TransactionTimedOutException("Выгрузка заявок события " + eventId
+                                + " не уложилась в " + timeout.toSeconds() + " с.");
+                    }
+                    consumer.accept(RequestMapper.returnRequestDto(rs));
+                }, eventId);
+    }
+}
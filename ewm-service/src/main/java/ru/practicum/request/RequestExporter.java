@@ -0,0 +1,148 @@
+package ru.practicum.request;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.exception.TooManyRequestsException;
+import ru.practicum.request.dto.RequestDto;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static ru.practicum.Util.FORMATTER;
+
+/**
+ * Выгрузка заявок события в NDJSON или CSV: каждая строка курсора сразу пишется в ответ.
+ * Пока идёт выгрузка, она держит соединение с БД и транзакцию только на чтение, поэтому выгрузок одновременно
+ * не больше max-concurrent (на лишние - 429), а длительность ограничена timeout: транзакция прерывается, даже если
+ * клиент читает медленно, а соединение, простаивающее в транзакции дольше timeout, закрывает сам PostgreSQL.
+ */
+@Component
+public class RequestExporter {
+
+    private static final String PERMIT_KEY = RequestExporter.class.getName() + ".permit";
+    private static final byte[] CSV_HEADER = "id,created,event,requester,status\n".getBytes(StandardCharsets.UTF_8);
+
+    private final RequestExportRepository requestExportRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore exports;
+    private final Duration timeout;
+
+    public RequestExporter(RequestExportRepository requestExportRepository,
+                           ObjectMapper objectMapper,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${ewm.requests.export.max-concurrent:4}") int maxConcurrent,
+                           @Value("${ewm.requests.export.timeout:2m}") Duration timeout) {
+        this.requestExportRepository = requestExportRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setTimeout((int) Math.max(1, timeout.toSeconds()));
+        this.exports = new Semaphore(maxConcurrent);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Место под выгрузку занимается сразу, в потоке запроса, чтобы на лишние ответить 429.
+     * Тело ответа может так и не запуститься (таймаут async в очереди executor, отказ executor, откат транзакции
+     * после export), поэтому место освобождается ровно один раз: после записи тела, по завершении async-обработки
+     * или, если async так и не начался, по завершении запроса.
+     */
+    public StreamingResponseBody export(Long eventId, RequestExportFormat format) {
+
+        if (!exports.tryAcquire()) {
+            throw new TooManyRequestsException("Слишком много одновременных выгрузок заявок, повторите позже.");
+        }
+        Permit permit = new Permit();
+        try {
+            releaseWithRequest(permit);
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+        return outputStream -> {
+            try {
+                OutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+                if (format == RequestExportFormat.CSV) {
+                    out.write(CSV_HEADER);
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> requestExportRepository.forEachByEventId(eventId, timeout,
+                            request -> {
+                                try {
+                                    write(out, request, format);
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            }));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                out.flush();
+            } finally {
+                permit.release();
+            }
+        };
+    }
+
+    private static void releaseWithRequest(Permit permit) {
+
+        RequestAttributes attributes = RequestContextHolder.currentRequestAttributes();
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(((ServletRequestAttributes) attributes).getRequest());
+        asyncManager.registerCallableInterceptor(PERMIT_KEY, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                permit.release();
+            }
+        });
+        attributes.registerDestructionCallback(PERMIT_KEY, () -> {
+            if (!asyncManager.isConcurrentHandlingStarted()) {
+                permit.release();
+            }
+        }, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    private void write(OutputStream out, RequestDto request, RequestExportFormat format) throws IOException {
+
+        if (format == RequestExportFormat.CSV) {
+            String line = request.getId() + ","
+                    + (request.getCreated() == null ? "" : FORMATTER.format(request.getCreated())) + ","
+                    + request.getEvent() + ","
+                    + request.getRequester() + ","
+                    + request.getStatus() + "\n";
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+        } else {
+            out.write(objectMapper.writeValueAsBytes(request));
+            out.write('\n');
+        }
+    }
+
+    private class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                exports.release();
+            }
+        }
+    }
+}
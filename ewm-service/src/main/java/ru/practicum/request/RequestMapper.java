@@ -6,6 +6,9 @@ import ru.practicum.request.dto.RequestDto;
 import ru.practicum.user.User;
 import ru.practicum.util.enums.Status;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,6 +26,18 @@ public class RequestMapper {
         return requestDto;
     }
 
+    public static RequestDto returnRequestDto(ResultSet rs) throws SQLException {
+        Timestamp created = rs.getTimestamp("created");
+        RequestDto requestDto = RequestDto.builder()
+                .id(rs.getLong("id"))
+                .created(created == null ? null : created.toLocalDateTime())
+                .event(rs.getLong("event_id"))
+                .requester(rs.getLong("requester_id"))
+                .status(Status.valueOf(rs.getString("status")))
+                .build();
+        return requestDto;
+    }
+
     public static Request returnRequest(RequestDto requestDto, Event event, User user) {
         Request request = Request.builder()
                 .id(requestDto.getId())
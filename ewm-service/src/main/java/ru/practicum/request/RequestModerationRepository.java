@@ -0,0 +1,83 @@
+package ru.practicum.request;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.practicum.request.dto.RequestDto;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Модерация заявок одной командой на пачку: id передаются массивом (= ANY(?)),
+ * поэтому число и текст команд не зависят от размера пачки.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RequestModerationRepository {
+
+    private static final String RETURNING = " RETURNING id, created, event_id, requester_id, status";
+
+    private static final String CONFIRM_PENDING = "UPDATE requests SET status = 'CONFIRMED' WHERE id IN (" +
+            "SELECT id FROM requests WHERE id = ANY(?) AND event_id = ? AND status = 'PENDING' " +
+            "ORDER BY id LIMIT ? FOR UPDATE)" + RETURNING;
+
+    private static final String REJECT_PENDING = "UPDATE requests SET status = 'REJECTED' " +
+            "WHERE id = ANY(?) AND event_id = ? AND status = 'PENDING'" + RETURNING;
+
+    private static final String REJECT_ALL_PENDING = "UPDATE requests SET status = 'REJECTED' " +
+            "WHERE event_id = ? AND status = 'PENDING'" + RETURNING;
+
+    private static final String EXISTS_NOT_PENDING = "SELECT EXISTS (SELECT 1 FROM requests " +
+            "WHERE id = ANY(?) AND event_id = ? AND status <> 'PENDING')";
+
+    private static final RowMapper<RequestDto> REQUEST_ROW_MAPPER = (rs, rowNum) -> RequestMapper.returnRequestDto(rs);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<RequestDto> confirmPending(Long eventId, Collection<Long> requestIds, long limit) {
+
+        List<RequestDto> confirmed = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(CONFIRM_PENDING);
+            statement.setArray(1, connection.createArrayOf("bigint", requestIds.toArray()));
+            statement.setLong(2, eventId);
+            statement.setLong(3, limit);
+            return statement;
+        }, REQUEST_ROW_MAPPER);
+        confirmed.sort(Comparator.comparing(RequestDto::getId));
+        return confirmed;
+    }
+
+    public List<RequestDto> rejectPending(Long eventId, Collection<Long> requestIds) {
+
+        List<RequestDto> rejected = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(REJECT_PENDING);
+            statement.setArray(1, connection.createArrayOf("bigint", requestIds.toArray()));
+            statement.setLong(2, eventId);
+            return statement;
+        }, REQUEST_ROW_MAPPER);
+        rejected.sort(Comparator.comparing(RequestDto::getId));
+        return rejected;
+    }
+
+    public List<RequestDto> rejectAllPending(Long eventId) {
+
+        List<RequestDto> rejected = jdbcTemplate.query(REJECT_ALL_PENDING, REQUEST_ROW_MAPPER, eventId);
+        rejected.sort(Comparator.comparing(RequestDto::getId));
+        return rejected;
+    }
+
+    public boolean existsNotPending(Long eventId, Collection<Long> requestIds) {
+
+        List<Boolean> exists = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXISTS_NOT_PENDING);
+            statement.setArray(1, connection.createArrayOf("bigint", requestIds.toArray()));
+            statement.setLong(2, eventId);
+            return statement;
+        }, (rs, rowNum) -> rs.getBoolean(1));
+        return exists.get(0);
+    }
+}
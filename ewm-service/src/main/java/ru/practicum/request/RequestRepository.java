@@ -1,7 +1,6 @@
 package ru.practicum.request;
 
 import org.springframework.data.jpa.repository.JpaRepository;
-import ru.practicum.util.enums.Status;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,6 +12,4 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
     List<Request> findByEventId(Long eventId);
 
     Optional<Request> findByRequesterIdAndEventId(Long userId, Long eventId);
-
-    Long countAllByEventIdAndStatus(Long eventId, Status status);
 }
@@ -1,9 +1,13 @@
 package ru.practicum.request;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.compilation.PinnedCompilationsCache;
 import ru.practicum.event.EventRepository;
 import ru.practicum.event.model.Event;
 import ru.practicum.exception.ConflictException;
@@ -23,16 +27,30 @@ import static ru.practicum.request.RequestMapper.returnRequestDtoList;
 @Slf4j
 @Service
 @AllArgsConstructor
+@Timed(value = "requests.service", histogram = true)
 public class RequestServiceImpl implements RequestService {
 
     private final RequestRepository requestRepository;
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
+    private final RequestAdmission requestAdmission;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public RequestDto addRequest(Long userId, Long eventId) {
 
+        RequestDto admitted = requestAdmission.tryAdmit(userId, eventId);
+        if (admitted != null) {
+            return admitted;
+        }
+
+        return transactionTemplate.execute(status -> addRequestInTransaction(userId, eventId));
+    }
+
+    private RequestDto addRequestInTransaction(Long userId, Long eventId) {
+
         User user = userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Пользователя с id " + userId + " не существует"));
         Event event = eventRepository.findById(eventId).orElseThrow(() -> new NotFoundException("События с id " + eventId + " не существует"));
 
@@ -60,10 +78,12 @@ public class RequestServiceImpl implements RequestService {
                     .build();
 
             if (!event.getRequestModeration() || event.getParticipantLimit() == 0) {
+                if (eventRepository.reserveConfirmedRequests(eventId, 1) == 0) {
+                    throw new ConflictException("Превышен лимит.");
+                }
                 request.setStatus(Status.CONFIRMED);
                 request = requestRepository.save(request);
-                event.setConfirmedRequests(requestRepository.countAllByEventIdAndStatus(eventId, Status.CONFIRMED));
-                eventRepository.save(event);
+                pinnedCompilationsCache.invalidate();
 
                 return returnRequestDto(request);
             }
@@ -90,6 +110,11 @@ public class RequestServiceImpl implements RequestService {
         userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Пользователя с id " + userId + " не существует"));
 
         Request request = requestRepository.findById(requestId).orElseThrow(() -> new NotFoundException("Запроса с id " + userId + " не существует"));
+        if (request.getStatus() == Status.CONFIRMED) {
+            eventRepository.releaseConfirmedRequests(request.getEvent().getId(), 1);
+            requestAdmission.release(request.getEvent().getId());
+            pinnedCompilationsCache.invalidate();
+        }
         request.setStatus(Status.CANCELED);
 
         return returnRequestDto(requestRepository.save(request));
@@ -0,0 +1,55 @@
+package ru.practicum.request;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Остаток мест события, разложенный по нескольким ячейкам: каждый поток сначала списывает место
+ * из «своей» ячейки и только при её исчерпании переходит к соседним. Ячейки разнесены по разным кеш-линиям.
+ */
+class StripedCapacity {
+
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    StripedCapacity(long capacity, int stripes) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+
+        long available = Math.max(capacity, 0);
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PADDING, available / stripes + (i < available % stripes ? 1 : 0));
+        }
+    }
+
+    boolean tryAcquire() {
+
+        int home = home();
+        for (int i = 0; i < stripes; i++) {
+            int index = ((home + i) % stripes) * PADDING;
+            long available = cells.get(index);
+            while (available > 0) {
+                if (cells.compareAndSet(index, available, available - 1)) {
+                    return true;
+                }
+                available = cells.get(index);
+            }
+        }
+        return false;
+    }
+
+    void release(long count) {
+        cells.addAndGet(home() * PADDING, count);
+    }
+
+    void drain() {
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PADDING, 0);
+        }
+    }
+
+    private int home() {
+        return (int) (Thread.currentThread().getId() % stripes);
+    }
+}
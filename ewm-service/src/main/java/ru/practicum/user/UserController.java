@@ -5,6 +5,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.user.dto.UserDto;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
@@ -28,9 +29,11 @@ public class UserController {
     @ResponseStatus(value = HttpStatus.OK)
     public List<UserDto> getUsers(@RequestParam(required = false) List<Long> ids,
                                   @PositiveOrZero @RequestParam(defaultValue = "0") Integer from,
-                                  @Positive @RequestParam(defaultValue = "10") Integer size) {
+                                  @Positive @RequestParam(defaultValue = "10") Integer size,
+                                  @RequestParam(required = false) String after,
+                                  HttpServletResponse response) {
 
-        return userService.getUsers(ids, from, size);
+        return userService.getUsers(ids, after, from, size).writeTo(response);
     }
 
     @DeleteMapping("/{userId}")
@@ -8,5 +8,7 @@ import java.util.List;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
-    List<User> findByIdInOrderByIdAsc(List<Long> ids, PageRequest pageRequest);
+    List<User> findByIdGreaterThanOrderByIdAsc(Long afterId, PageRequest pageRequest);
+
+    List<User> findByIdInAndIdGreaterThanOrderByIdAsc(List<Long> ids, Long afterId, PageRequest pageRequest);
 }
\ No newline at end of file
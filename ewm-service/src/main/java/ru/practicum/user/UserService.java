@@ -1,6 +1,7 @@
 package ru.practicum.user;
 
 import ru.practicum.user.dto.UserDto;
+import ru.practicum.util.CursorPage;
 
 import java.util.List;
 
@@ -11,5 +12,5 @@ public interface UserService {
 
     void deleteUser(long userId);
 
-    List<UserDto> getUsers(List<Long> ids, Integer from, Integer size);
+    CursorPage<UserDto> getUsers(List<Long> ids, String after, Integer from, Integer size);
 }
\ No newline at end of file
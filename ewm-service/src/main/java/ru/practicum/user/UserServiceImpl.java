@@ -7,6 +7,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.user.dto.UserDto;
+import ru.practicum.util.CursorPage;
+import ru.practicum.util.PageCursor;
 
 import java.util.List;
 
@@ -32,15 +34,18 @@ public class UserServiceImpl implements UserService {
 
     @Transactional(readOnly = true)
     @Override
-    public List<UserDto> getUsers(List<Long> ids, Integer from, Integer size) {
+    public CursorPage<UserDto> getUsers(List<Long> ids, String after, Integer from, Integer size) {
 
-        PageRequest pageRequest = PageRequest.of(from / size, size);
+        PageCursor cursor = PageCursor.decode(after);
+        PageRequest pageRequest = PageCursor.pageRequest(cursor, from, size);
+        List<User> users;
 
         if (ids == null) {
-            return returnUserDtoList(userRepository.findAll(pageRequest));
+            users = userRepository.findByIdGreaterThanOrderByIdAsc(PageCursor.afterId(cursor), pageRequest);
         } else {
-            return returnUserDtoList(userRepository.findByIdInOrderByIdAsc(ids, pageRequest));
+            users = userRepository.findByIdInAndIdGreaterThanOrderByIdAsc(ids, PageCursor.afterId(cursor), pageRequest);
         }
+        return CursorPage.of(returnUserDtoList(users), size, user -> PageCursor.byId(user.getId()));
     }
 
     @Transactional
@@ -0,0 +1,35 @@
+package ru.practicum.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка и курсор следующей страницы (null, если страница неполная).
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    public static <T> CursorPage<T> of(List<T> content, int size, Function<T, PageCursor> cursorOf) {
+
+        if (content.isEmpty() || content.size() < size) {
+            return new CursorPage<>(content, null);
+        }
+        return new CursorPage<>(content, cursorOf.apply(content.get(content.size() - 1)).encode());
+    }
+
+    public List<T> writeTo(HttpServletResponse response) {
+
+        if (nextCursor != null) {
+            response.setHeader(PageCursor.NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return content;
+    }
+}
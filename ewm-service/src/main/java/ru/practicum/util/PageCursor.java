@@ -0,0 +1,91 @@
+package ru.practicum.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор keyset-пагинации: значение ключа сортировки и id последней строки страницы.
+ * Следующая страница запрашивается параметром after, курсор отдаётся в заголовке X-Next-Cursor.
+ */
+@Getter
+@AllArgsConstructor
+public class PageCursor {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final char SEPARATOR = '|';
+
+    private final String key;
+    private final long id;
+
+    public static PageCursor byId(long id) {
+        return new PageCursor("", id);
+    }
+
+    public static PageCursor decode(String cursor) {
+
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf(SEPARATOR);
+            return new PageCursor(value.substring(0, separator), Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Некорректный курсор " + cursor);
+        }
+    }
+
+    public static PageRequest pageRequest(PageCursor cursor, int from, int size) {
+        return cursor == null ? PageRequest.of(from / size, size) : PageRequest.of(0, size);
+    }
+
+    public static long afterId(PageCursor cursor) {
+        return cursor == null ? 0L : cursor.getId();
+    }
+
+    public long getKeyAsLong() {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный курсор: ключ " + key);
+        }
+    }
+
+    public LocalDateTime getKeyAsDateTime() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("Некорректный курсор: ключ " + key);
+        }
+    }
+
+    public float getKeyAsFloat() {
+        try {
+            return Float.parseFloat(key);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный курсор: ключ " + key);
+        }
+    }
+
+    public double getKeyAsDouble() {
+        try {
+            return Double.parseDouble(key);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный курсор: ключ " + key);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((key + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.util.enums;
+
+import ru.practicum.exception.ValidationException;
+
+public enum EventSort {
+    EVENT_DATE,
+    VIEWS,
+    DISTANCE;
+
+    public static EventSort getSortValue(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return null;
+        }
+        try {
+            return EventSort.valueOf(sort);
+        } catch (Exception e) {
+            throw new ValidationException("Неизвестная сортировка: " + sort);
+        }
+    }
+}
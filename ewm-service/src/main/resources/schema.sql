@@ -47,6 +47,42 @@ CREATE TABLE IF NOT EXISTS events (
 	CONSTRAINT fk_location_id FOREIGN KEY (location_id) REFERENCES locations (id) ON DELETE CASCADE ON UPDATE CASCADE
 );
 
+ALTER TABLE events ADD COLUMN IF NOT EXISTS search_vector TSVECTOR GENERATED ALWAYS AS (
+	setweight(to_tsvector('russian', coalesce(title, '')), 'A') ||
+	setweight(to_tsvector('russian', coalesce(annotation, '')), 'B') ||
+	setweight(to_tsvector('russian', coalesce(description, '')), 'C')
+) STORED;
+
+CREATE INDEX IF NOT EXISTS events_search_vector_idx ON events USING GIN (search_vector);
+
+CREATE INDEX IF NOT EXISTS events_published_event_date_idx ON events (event_date, id) WHERE state = 'PUBLISHED';
+
+CREATE TABLE IF NOT EXISTS schema_migrations (
+	name				VARCHAR(100)								NOT NULL,
+
+	CONSTRAINT pk_schema_migrations PRIMARY KEY (name)
+);
+
+WITH migration AS (
+	INSERT INTO schema_migrations (name) VALUES ('delete_orphan_locations') ON CONFLICT (name) DO NOTHING RETURNING name
+)
+DELETE FROM locations AS l
+WHERE EXISTS (SELECT 1 FROM migration) AND NOT EXISTS (SELECT 1 FROM events AS e WHERE e.location_id = l.id);
+
+CREATE INDEX IF NOT EXISTS locations_point_idx ON locations USING GIST (point(lon, lat));
+
+CREATE TABLE IF NOT EXISTS event_views (
+	event_id			BIGINT										NOT NULL,
+	views				BIGINT			DEFAULT 0					NOT NULL,
+
+	CONSTRAINT pk_event_views PRIMARY KEY (event_id),
+	CONSTRAINT fk_event_views_event_id FOREIGN KEY (event_id) REFERENCES events (id) ON DELETE CASCADE ON UPDATE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS event_views_top_idx ON event_views (views DESC, event_id);
+
+INSERT INTO event_views (event_id) SELECT id FROM events WHERE state = 'PUBLISHED' ON CONFLICT (event_id) DO NOTHING;
+
 CREATE TABLE IF NOT EXISTS requests (
 	id            		BIGINT GENERATED BY DEFAULT AS IDENTITY 	NOT NULL,
 	event_id       		BIGINT                                  	NOT NULL,
@@ -60,6 +96,8 @@ CREATE TABLE IF NOT EXISTS requests (
 	CONSTRAINT fk_event_id FOREIGN KEY (event_id) REFERENCES events (id) ON DELETE CASCADE ON UPDATE CASCADE
 );
 
+CREATE INDEX IF NOT EXISTS requests_event_id_id_idx ON requests (event_id, id);
+
 CREATE TABLE IF NOT EXISTS compilations (
 	id            		BIGINT GENERATED BY DEFAULT AS IDENTITY 	NOT NULL,
 	pinned 				BOOLEAN 			DEFAULT FALSE,
@@ -0,0 +1,132 @@
+package ru.practicum.event;
+
+import io.zonky.test.db.AutoConfigureEmbeddedDatabase;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.category.Category;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.Location;
+import ru.practicum.user.User;
+import ru.practicum.util.enums.State;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseProvider.ZONKY;
+import static io.zonky.test.db.AutoConfigureEmbeddedDatabase.DatabaseType.POSTGRES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Списки событий вместе с initiator, category и location должны читаться одним запросом
+ * независимо от размера страницы. У каждого события свои category и location,
+ * initiator общий у чётных событий (для списка инициатора) и свой у нечётных.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureEmbeddedDatabase(type = POSTGRES, provider = ZONKY)
+class EventRepositoryStatementCountTest {
+
+    private static final int EVENTS = 20;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long initiatorId;
+    private Set<Long> eventIds;
+
+    @BeforeEach
+    void setUp() {
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        eventIds = new HashSet<>();
+        for (int i = 0; i < EVENTS; i++) {
+            User initiator = entityManager.persist(User.builder().name("user" + i).email("user" + i + "@mail.ru").build());
+            if (initiatorId == null) {
+                initiatorId = initiator.getId();
+            }
+            Category category = entityManager.persist(Category.builder().name("category" + i).build());
+            Location location = entityManager.persist(Location.builder().lat(55.75f + i).lon(37.61f).build());
+            Event event = entityManager.persist(Event.builder()
+                    .initiator(i % 2 == 0 ? entityManager.find(User.class, initiatorId) : initiator)
+                    .category(category)
+                    .location(location)
+                    .title("Событие " + i)
+                    .annotation("Аннотация события номер " + i)
+                    .description("Описание события номер " + i)
+                    .eventDate(LocalDateTime.now().plusDays(i + 1))
+                    .paid(false)
+                    .participantLimit(0L)
+                    .requestModeration(false)
+                    .createdOn(LocalDateTime.now())
+                    .publishedOn(LocalDateTime.now())
+                    .state(State.PUBLISHED)
+                    .build());
+            eventIds.add(event.getId());
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void publicListLoadsPageInOneStatement() {
+
+        assertConstantStatements(size -> eventRepository.findEventsByPublicFromParam(0L, null, null, null,
+                null, null, false, PageRequest.of(0, size)));
+    }
+
+    @Test
+    void adminListLoadsPageInOneStatement() {
+
+        assertConstantStatements(size -> eventRepository.findEventsByAdminFromParam(0L, null, null, null,
+                null, null, PageRequest.of(0, size)));
+    }
+
+    @Test
+    void initiatorListLoadsPageInOneStatement() {
+
+        assertConstantStatements(size -> eventRepository.findByInitiatorIdAndIdGreaterThanOrderByIdAsc(initiatorId, 0L,
+                PageRequest.of(0, size)));
+    }
+
+    @Test
+    void findByIdInLoadsEventsInOneStatement() {
+
+        assertConstantStatements(size -> eventRepository.findByIdIn(new HashSet<>(List.copyOf(eventIds).subList(0, size))));
+    }
+
+    private void assertConstantStatements(Function<Integer, Collection<Event>> query) {
+
+        assertThat(countStatements(query, 1)).isEqualTo(1);
+        assertThat(countStatements(query, EVENTS / 2)).isEqualTo(1);
+    }
+
+    private long countStatements(Function<Integer, Collection<Event>> query, int size) {
+
+        entityManager.clear();
+        statistics.clear();
+        Collection<Event> events = query.apply(size);
+        assertThat(events).hasSize(size);
+        for (Event event : events) {
+            assertThat(event.getInitiator().getName()).isNotNull();
+            assertThat(event.getCategory().getName()).isNotNull();
+            assertThat(event.getLocation().getLat()).isNotNull();
+        }
+        return statistics.getPrepareStatementCount();
+    }
+}
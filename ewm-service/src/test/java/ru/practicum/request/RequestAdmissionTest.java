@@ -0,0 +1,98 @@
+package ru.practicum.request;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.compilation.PinnedCompilationsCache;
+import ru.practicum.event.EventRepository;
+import ru.practicum.request.RequestAdmissionRepository.AdmissionEvent;
+import ru.practicum.request.dto.RequestDto;
+import ru.practicum.util.enums.State;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Таймауты ожидания заявки при занятом писателе: wait-timeout 200 мс, транзакция писателя - до 1 с.
+ * Писатель держит транзакцию первой заявки, пока тест не отпустит release.
+ */
+class RequestAdmissionTest {
+
+    private static final long EVENT_ID = 1L;
+    private static final Duration WAIT_TIMEOUT = Duration.ofMillis(200);
+
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private RequestAdmission admission;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+
+        RequestAdmissionRepository admissionRepository = mock(RequestAdmissionRepository.class);
+        when(admissionRepository.findEvent(EVENT_ID))
+                .thenReturn(new AdmissionEvent(EVENT_ID, 100L, 0L, 0L, false, State.PUBLISHED.name()));
+        when(admissionRepository.insertConfirmed(eq(EVENT_ID), any(), any())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return Map.of(((List<Long>) invocation.getArgument(1)).get(0), 1000L);
+        });
+        EventRepository eventRepository = mock(EventRepository.class);
+        when(eventRepository.reserveConfirmedRequests(eq(EVENT_ID), anyLong())).thenReturn(1);
+
+        admission = new RequestAdmission(admissionRepository, eventRepository, mock(PinnedCompilationsCache.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(),
+                true, 1, 100, 500, 100, Duration.ofMinutes(10), WAIT_TIMEOUT);
+        admission.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+
+        release.countDown();
+        admission.stop();
+    }
+
+    @Test
+    void queuedAdmissionFallsBackAfterWaitTimeout() throws Exception {
+
+        CompletableFuture.supplyAsync(() -> admission.tryAdmit(10L, EVENT_ID));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long started = System.nanoTime();
+        RequestDto queued = admission.tryAdmit(11L, EVENT_ID);
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(queued).isNull();
+        assertThat(waited).isBetween(WAIT_TIMEOUT.toMillis(), WAIT_TIMEOUT.toMillis() + 500);
+    }
+
+    @Test
+    void claimedAdmissionWaitsForWriterPastWaitTimeout() throws Exception {
+
+        CompletableFuture<RequestDto> claimed = CompletableFuture.supplyAsync(() -> admission.tryAdmit(10L, EVENT_ID));
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread.sleep(WAIT_TIMEOUT.toMillis() * 3);
+        release.countDown();
+
+        RequestDto request = claimed.get(5, TimeUnit.SECONDS);
+        assertThat(request).isNotNull();
+        assertThat(request.getId()).isEqualTo(1000L);
+        assertThat(request.getRequester()).isEqualTo(10L);
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.loadtest;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Queue;
+
+/**
+ * Что лежит в базе после заполнения: id пользователей и категорий идут подряд с 1,
+ * опубликованные события отсортированы по убыванию популярности, неопубликованные ждут модерации в очереди.
+ * События для модерации заявок пачками в published не входят: каждое отдаётся одной операции через bulkModeration.
+ */
+@Getter
+@RequiredArgsConstructor
+class Dataset {
+
+    static final float MIN_LAT = 55.5f;
+    static final float MIN_LON = 37.3f;
+    static final float SPAN = 1.0f;
+
+    private final int users;
+    private final int categories;
+    private final long[] published;
+    private final long[] initiators;
+    private final Queue<Long> pending;
+    private final long requests;
+    private final Queue<BulkEvent> bulkModeration;
+
+    long getInitiator(long eventId) {
+        return initiators[(int) eventId];
+    }
+
+    /**
+     * Событие с модерацией и size заявками PENDING, id заявок идут подряд с firstRequestId.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    static class BulkEvent {
+
+        private final long eventId;
+        private final long initiator;
+        private final long firstRequestId;
+        private final int size;
+    }
+}
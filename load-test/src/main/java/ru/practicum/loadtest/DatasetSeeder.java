@@ -0,0 +1,284 @@
+package ru.practicum.loadtest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Заполняет базу ewm-service напрямую через JDBC пачками: через API это заняло бы дольше самого прогона.
+ * Таблицы очищаются, id задаются явно и затем выравниваются последовательности, чтобы вставки через API не конфликтовали.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class DatasetSeeder {
+
+    private static final int BATCH = 1000;
+    private static final String[] WORDS = ("концерт выставка лекция мастер-класс фестиваль спектакль экскурсия встреча "
+            + "город музыка искусство история наука кино театр семья вечер площадка билет программа").split(" ");
+
+    private final Connection connection;
+    private final Random random;
+
+    Dataset seed(int users, int categories, int events, double pendingShare, int requestsPerEvent,
+                 int bulkEvents, int bulkSize) throws SQLException {
+
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE users, categories, locations, events, event_views, requests, "
+                    + "compilations, compilations_events RESTART IDENTITY CASCADE");
+        }
+
+        insertUsers(1, users);
+        insertCategories(categories);
+
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        long[] initiators = new long[events + 1];
+        List<long[]> views = new ArrayList<>();
+        List<long[]> requests = new ArrayList<>();
+        ConcurrentLinkedQueue<Long> pending = new ConcurrentLinkedQueue<>();
+
+        try (PreparedStatement location = connection.prepareStatement("INSERT INTO locations (id, lat, lon) VALUES (?, ?, ?)");
+             PreparedStatement event = connection.prepareStatement("INSERT INTO events (id, initiator_id, category_id, "
+                     + "location_id, title, annotation, event_date, paid, description, confirmed_requests, participant_limit, "
+                     + "request_moderation, published_on, created_on, state, views) "
+                     + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (long id = 1; id <= events; id++) {
+                location.setLong(1, id);
+                location.setFloat(2, Dataset.MIN_LAT + random.nextFloat() * Dataset.SPAN);
+                location.setFloat(3, Dataset.MIN_LON + random.nextFloat() * Dataset.SPAN);
+                location.addBatch();
+
+                long initiator = 1 + random.nextInt(users);
+                initiators[(int) id] = initiator;
+                boolean published = random.nextDouble() >= pendingShare;
+                boolean moderation = random.nextInt(4) == 0;
+                long limit = random.nextBoolean() ? 0 : 10 + random.nextInt(200);
+                long confirmed = 0;
+                if (published) {
+                    int count = requestsPerEvent == 0 ? 0 : random.nextInt(2 * requestsPerEvent + 1);
+                    if (limit > 0) {
+                        count = (int) Math.min(count, limit);
+                    }
+                    for (long requester : requesters(users, initiator, count)) {
+                        requests.add(new long[]{id, requester, moderation ? 0 : 1});
+                    }
+                    confirmed = moderation ? 0 : count;
+                    views.add(new long[]{id, (long) (100_000 * Math.pow(random.nextDouble(), 4))});
+                } else {
+                    pending.add(id);
+                }
+
+                event.setLong(1, id);
+                event.setLong(2, initiator);
+                event.setLong(3, 1 + random.nextInt(categories));
+                event.setLong(4, id);
+                event.setString(5, text(3, 120));
+                event.setString(6, text(20, 2000));
+                event.setTimestamp(7, Timestamp.valueOf(now.plusDays(3 + random.nextInt(90)).plusMinutes(random.nextInt(1440))));
+                event.setBoolean(8, random.nextBoolean());
+                event.setString(9, text(150, 7000));
+                event.setLong(10, confirmed);
+                event.setLong(11, limit);
+                event.setBoolean(12, moderation);
+                event.setTimestamp(13, published ? Timestamp.valueOf(now.minusDays(random.nextInt(10))) : null);
+                event.setTimestamp(14, Timestamp.valueOf(now.minusDays(10 + random.nextInt(30))));
+                event.setString(15, published ? "PUBLISHED" : "PENDING");
+                event.setLong(16, published ? views.get(views.size() - 1)[1] : 0);
+                event.addBatch();
+
+                if (id % BATCH == 0) {
+                    location.executeBatch();
+                    event.executeBatch();
+                }
+            }
+            location.executeBatch();
+            event.executeBatch();
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO event_views (event_id, views) VALUES (?, ?)")) {
+            for (int i = 0; i < views.size(); i++) {
+                statement.setLong(1, views.get(i)[0]);
+                statement.setLong(2, views.get(i)[1]);
+                statement.addBatch();
+                if ((i + 1) % BATCH == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO requests (event_id, requester_id, status, created) "
+                + "VALUES (?, ?, ?, ?)")) {
+            Timestamp created = Timestamp.valueOf(now.minusDays(1));
+            for (int i = 0; i < requests.size(); i++) {
+                statement.setLong(1, requests.get(i)[0]);
+                statement.setLong(2, requests.get(i)[1]);
+                statement.setString(3, requests.get(i)[2] == 1 ? "CONFIRMED" : "PENDING");
+                statement.setTimestamp(4, created);
+                statement.addBatch();
+                if ((i + 1) % BATCH == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+
+        Queue<Dataset.BulkEvent> bulkModeration = insertBulkModeration(users, categories, events, bulkEvents, bulkSize, now);
+
+        try (Statement statement = connection.createStatement()) {
+            for (String table : List.of("users", "categories", "locations", "events", "requests")) {
+                statement.execute("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), "
+                        + "(SELECT coalesce(max(id), 0) + 1 FROM " + table + "), false)");
+            }
+            statement.execute("ANALYZE");
+        }
+        connection.commit();
+
+        long[] published = views.stream()
+                .sorted((a, b) -> Long.compare(b[1], a[1]))
+                .mapToLong(view -> view[0])
+                .toArray();
+        log.info("Заполнено: {} пользователей, {} категорий, {} событий ({} опубликовано), {} заявок, "
+                        + "{} событий по {} заявок для модерации пачками",
+                users, categories, events, published.length, requests.size(), bulkEvents, bulkSize);
+        return new Dataset(users, categories, published, initiators, pending, requests.size(), bulkModeration);
+    }
+
+    /**
+     * События с id после обычных, лимит - 60% заявок. Заявки подают отдельные пользователи с id после обычных,
+     * чтобы их не задели заявки из request-burst; id заявок задаются явно, чтобы операция знала их без запроса к API.
+     */
+    private Queue<Dataset.BulkEvent> insertBulkModeration(int users, int categories, int events, int bulkEvents, int bulkSize,
+                                                          LocalDateTime now) throws SQLException {
+
+        Queue<Dataset.BulkEvent> result = new ConcurrentLinkedQueue<>();
+        if (bulkEvents == 0) {
+            return result;
+        }
+        insertUsers(users + 1, users + bulkSize);
+
+        long requestId;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT coalesce(max(id), 0) FROM requests")) {
+            resultSet.next();
+            requestId = resultSet.getLong(1);
+        }
+
+        try (PreparedStatement location = connection.prepareStatement("INSERT INTO locations (id, lat, lon) VALUES (?, ?, ?)");
+             PreparedStatement event = connection.prepareStatement("INSERT INTO events (id, initiator_id, category_id, "
+                     + "location_id, title, annotation, event_date, paid, description, confirmed_requests, participant_limit, "
+                     + "request_moderation, published_on, created_on, state, views) "
+                     + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, TRUE, ?, ?, 'PUBLISHED', 0)");
+             PreparedStatement views = connection.prepareStatement("INSERT INTO event_views (event_id, views) VALUES (?, 0)");
+             PreparedStatement request = connection.prepareStatement("INSERT INTO requests (id, event_id, requester_id, status, "
+                     + "created) VALUES (?, ?, ?, 'PENDING', ?)")) {
+            Timestamp created = Timestamp.valueOf(now.minusDays(1));
+            for (long id = events + 1; id <= events + bulkEvents; id++) {
+                long initiator = 1 + random.nextInt(users);
+                location.setLong(1, id);
+                location.setFloat(2, Dataset.MIN_LAT + random.nextFloat() * Dataset.SPAN);
+                location.setFloat(3, Dataset.MIN_LON + random.nextFloat() * Dataset.SPAN);
+                location.executeUpdate();
+
+                event.setLong(1, id);
+                event.setLong(2, initiator);
+                event.setLong(3, 1 + random.nextInt(categories));
+                event.setLong(4, id);
+                event.setString(5, text(3, 120));
+                event.setString(6, text(20, 2000));
+                event.setTimestamp(7, Timestamp.valueOf(now.plusDays(3 + random.nextInt(90))));
+                event.setBoolean(8, random.nextBoolean());
+                event.setString(9, text(150, 7000));
+                event.setLong(10, bulkSize * 3L / 5);
+                event.setTimestamp(11, Timestamp.valueOf(now.minusDays(random.nextInt(10))));
+                event.setTimestamp(12, Timestamp.valueOf(now.minusDays(10 + random.nextInt(30))));
+                event.executeUpdate();
+
+                views.setLong(1, id);
+                views.executeUpdate();
+
+                result.add(new Dataset.BulkEvent(id, initiator, requestId + 1, bulkSize));
+                for (int i = 1; i <= bulkSize; i++) {
+                    request.setLong(1, ++requestId);
+                    request.setLong(2, id);
+                    request.setLong(3, users + i);
+                    request.setTimestamp(4, created);
+                    request.addBatch();
+                    if (i % BATCH == 0) {
+                        request.executeBatch();
+                    }
+                }
+                request.executeBatch();
+            }
+        }
+        return result;
+    }
+
+    private void insertUsers(int from, int to) throws SQLException {
+
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO users (id, name, email) VALUES (?, ?, ?)")) {
+            for (int id = from; id <= to; id++) {
+                statement.setLong(1, id);
+                statement.setString(2, "Пользователь " + id);
+                statement.setString(3, "user" + id + "@load.test");
+                statement.addBatch();
+                if (id % BATCH == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void insertCategories(int categories) throws SQLException {
+
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO categories (id, name) VALUES (?, ?)")) {
+            for (int id = 1; id <= categories; id++) {
+                statement.setLong(1, id);
+                statement.setString(2, "Категория " + id);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private Set<Long> requesters(int users, long initiator, int count) {
+
+        Set<Long> result = new HashSet<>();
+        int limit = Math.min(count, users - 1);
+        while (result.size() < limit) {
+            long user = 1 + random.nextInt(users);
+            if (user != initiator) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    private String text(int words, int maxLength) {
+
+        String[] picked = new String[words];
+        Arrays.setAll(picked, i -> WORDS[random.nextInt(WORDS.length)]);
+        String text = String.join(" ", picked);
+        return text.length() > maxLength ? text.substring(0, maxLength) : text;
+    }
+
+    static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
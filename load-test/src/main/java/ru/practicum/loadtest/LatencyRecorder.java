@@ -0,0 +1,87 @@
+package ru.practicum.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Задержки и коды ответов по endpoint. Гистограммы в микросекундах до минуты с точностью в три знака.
+ * Ошибка - это 5xx или ответ, который не пришёл; ожидаемые 4xx (например, 409 на повторную заявку) только считаются.
+ */
+class LatencyRecorder {
+
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long nanos, int status) {
+
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, key -> new Endpoint());
+        stats.histogram.recordValue(Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 1), MAX_MICROS));
+        stats.statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+    }
+
+    void recordFailure(String endpoint, long nanos) {
+        record(endpoint, nanos, 0);
+    }
+
+    void reset() {
+        endpoints.clear();
+    }
+
+    Map<String, Object> report(double seconds) {
+
+        Map<String, Object> result = new TreeMap<>();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Histogram histogram = entry.getValue().histogram.copy();
+            Map<String, Long> statuses = new TreeMap<>();
+            long errors = 0;
+            for (Map.Entry<Integer, LongAdder> status : entry.getValue().statuses.entrySet()) {
+                long count = status.getValue().sum();
+                statuses.put(status.getKey() == 0 ? "failed" : String.valueOf(status.getKey()), count);
+                if (status.getKey() == 0 || status.getKey() >= 500) {
+                    errors += count;
+                }
+            }
+
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("mean", round(histogram.getMean() / 1000));
+            latency.put("p50", millis(histogram.getValueAtPercentile(50)));
+            latency.put("p95", millis(histogram.getValueAtPercentile(95)));
+            latency.put("p99", millis(histogram.getValueAtPercentile(99)));
+            latency.put("max", millis(histogram.getMaxValue()));
+
+            Map<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("requests", histogram.getTotalCount());
+            endpoint.put("errors", errors);
+            endpoint.put("throughput", round(histogram.getTotalCount() / seconds));
+            endpoint.put("latencyMs", latency);
+            endpoint.put("statuses", statuses);
+            result.put(entry.getKey(), endpoint);
+        }
+        return result;
+    }
+
+    long total() {
+        return endpoints.values().stream().mapToLong(endpoint -> endpoint.histogram.getTotalCount()).sum();
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static class Endpoint {
+        final Histogram histogram = new ConcurrentHistogram(MAX_MICROS, 3);
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    }
+}
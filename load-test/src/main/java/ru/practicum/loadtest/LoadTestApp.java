@@ -0,0 +1,128 @@
+package ru.practicum.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.EwmServerApp;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Нагрузочный прогон ewm-service целиком: встроенный PostgreSQL, EwmServerApp на случайном порту,
+ * заполнение базы, смесь запросов и отчёт в JSON с пропускной способностью и p50/p95/p99 по каждому endpoint.
+ */
+@Slf4j
+public class LoadTestApp {
+
+    private static final String DATABASE = "ewm_load";
+
+    public static void main(String[] args) throws Exception {
+
+        LoadTestConfig config = new LoadTestConfig(args);
+        String jdbcUrl = config.getString("jdbc-url");
+        EmbeddedPostgres postgres = null;
+        StatsServerStub stub = null;
+        ConfigurableApplicationContext context = null;
+        try {
+            if (jdbcUrl.isEmpty()) {
+                postgres = EmbeddedPostgres.builder().start();
+                try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                     Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE DATABASE " + DATABASE);
+                }
+                jdbcUrl = postgres.getJdbcUrl("postgres", DATABASE);
+                log.info("Встроенный PostgreSQL: {}", jdbcUrl);
+            }
+
+            String statsUrl = config.getString("stats-server.url");
+            if (statsUrl.isEmpty()) {
+                stub = new StatsServerStub();
+                statsUrl = stub.getUrl();
+            }
+
+            List<String> appArgs = new ArrayList<>(config.getAppArgs());
+            appArgs.add("--spring.datasource.url=" + jdbcUrl);
+            appArgs.add("--spring.datasource.username=" + config.getString("jdbc-user"));
+            appArgs.add("--spring.datasource.password=" + config.getString("jdbc-password"));
+            appArgs.add("--stats-server.url=" + statsUrl);
+            appArgs.add("--server.port=0");
+            context = new SpringApplicationBuilder(EwmServerApp.class).run(appArgs.toArray(new String[0]));
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+            Dataset dataset;
+            try (Connection connection = DriverManager.getConnection(jdbcUrl + (jdbcUrl.contains("?") ? "&" : "?")
+                    + "reWriteBatchedInserts=true", config.getString("jdbc-user"), config.getString("jdbc-password"))) {
+                dataset = new DatasetSeeder(connection, new Random(config.getLong("seed"))).seed(
+                        config.getInt("users"),
+                        config.getInt("categories"),
+                        config.getInt("events"),
+                        config.getDouble("pending-share"),
+                        config.getInt("requests-per-event"),
+                        config.getInt("bulk-moderation-events"),
+                        config.getInt("bulk-moderation-size"));
+            }
+
+            LatencyRecorder recorder = new LatencyRecorder();
+            Instant startedAt = Instant.now();
+            double seconds = new TrafficDriver(config, baseUrl, dataset, recorder).run(
+                    config.getInt("threads"),
+                    config.getLong("warmup-seconds"),
+                    config.getLong("duration-seconds"));
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("startedAt", startedAt.toString());
+            report.put("measuredSeconds", Math.round(seconds * 1000) / 1000.0);
+            report.put("environment", Map.of(
+                    "availableProcessors", Runtime.getRuntime().availableProcessors(),
+                    "javaVersion", System.getProperty("java.version"),
+                    "database", postgres != null ? "embedded" : "external"));
+            report.put("config", config.asMap());
+            report.put("dataset", Map.of(
+                    "users", dataset.getUsers(),
+                    "categories", dataset.getCategories(),
+                    "publishedEvents", dataset.getPublished().length,
+                    "pendingEventsLeft", dataset.getPending().size(),
+                    "seededRequests", dataset.getRequests(),
+                    "bulkModerationEventsLeft", dataset.getBulkModeration().size()));
+            report.put("totalRequests", recorder.total());
+            report.put("totalThroughput", Math.round(recorder.total() / seconds * 1000) / 1000.0);
+            report.put("endpoints", recorder.report(seconds));
+            if (stub != null) {
+                report.put("statsStub", Map.of("posts", stub.getPosts(), "gets", stub.getGets()));
+            }
+
+            Path path = Paths.get(config.getString("report"));
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+            objectMapper.writeValue(path.toFile(), report);
+            log.info("Отчёт: {}\n{}", path.toAbsolutePath(), objectMapper.writeValueAsString(report.get("endpoints")));
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (stub != null) {
+                stub.close();
+            }
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.practicum.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Настройки прогона: load-test.properties из classpath, поверх них аргументы --key=value.
+ */
+class LoadTestConfig {
+
+    private static final String APP_PREFIX = "app.";
+
+    private final Properties properties = new Properties();
+
+    LoadTestConfig(String[] args) throws IOException {
+
+        try (InputStream in = LoadTestConfig.class.getResourceAsStream("/load-test.properties")) {
+            if (in == null) {
+                throw new IllegalStateException("Не найден load-test.properties");
+            }
+            properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Ожидался аргумент вида --key=value: " + arg);
+            }
+            properties.setProperty(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+    }
+
+    String getString(String key) {
+
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Не задан параметр " + key);
+        }
+        return value.trim();
+    }
+
+    int getInt(String key) {
+        return Integer.parseInt(getString(key));
+    }
+
+    long getLong(String key) {
+        return Long.parseLong(getString(key));
+    }
+
+    double getDouble(String key) {
+        return Double.parseDouble(getString(key));
+    }
+
+    /**
+     * Свойства ewm-service в виде аргументов командной строки, чтобы они были сильнее application.properties.
+     */
+    List<String> getAppArgs() {
+
+        List<String> result = new ArrayList<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(APP_PREFIX)) {
+                result.add("--" + key.substring(APP_PREFIX.length()) + "=" + properties.getProperty(key).trim());
+            }
+        }
+        return result;
+    }
+
+    Map<String, Object> asMap() {
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        properties.stringPropertyNames().stream()
+                .filter(key -> !key.startsWith(APP_PREFIX) && !key.equals("jdbc-password"))
+                .sorted()
+                .forEach(key -> result.put(key, properties.getProperty(key).trim()));
+        return result;
+    }
+}
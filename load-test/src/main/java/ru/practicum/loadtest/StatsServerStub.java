@@ -0,0 +1,71 @@
+package ru.practicum.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Заглушка stats-server, чтобы задержки ewm-service не зависели от него: POST принимает и отвечает 201,
+ * GET /stats отвечает пустым списком.
+ */
+class StatsServerStub implements AutoCloseable {
+
+    private static final byte[] EMPTY_LIST = "[]".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final LongAdder posts = new LongAdder();
+    private final LongAdder gets = new LongAdder();
+
+    StatsServerStub() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    long getPosts() {
+        return posts.sum();
+    }
+
+    long getGets() {
+        return gets.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try (exchange) {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.transferTo(OutputStream.nullOutputStream());
+            }
+            if ("POST".equals(exchange.getRequestMethod())) {
+                posts.increment();
+                exchange.sendResponseHeaders(201, -1);
+            } else {
+                gets.increment();
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, EMPTY_LIST.length);
+                exchange.getResponseBody().write(EMPTY_LIST);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,295 @@
+package ru.practicum.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замкнутый цикл: каждый поток выбирает операцию по долям смеси, выполняет её и сразу берёт следующую.
+ * Популярность событий неравномерная: индекс в списке по убыванию просмотров - random^detail-skew.
+ * Модерация заявок пачками берёт очередное подготовленное событие и одним PATCH подтверждает все его заявки
+ * (часть сверх лимита отклоняется в том же запросе) или отклоняет их; когда события кончились, операция пропускается.
+ */
+@Slf4j
+class TrafficDriver {
+
+    static final String SEARCH = "GET /events";
+    static final String DETAIL = "GET /events/{id}";
+    static final String REQUEST = "POST /users/{userId}/requests";
+    static final String ADMIN_SEARCH = "GET /admin/events";
+    static final String MODERATION = "PATCH /admin/events/{eventId}";
+    static final String BULK_CONFIRM = "PATCH /users/{userId}/events/{eventId}/requests CONFIRMED";
+    static final String BULK_REJECT = "PATCH /users/{userId}/events/{eventId}/requests REJECTED";
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final String[] SORTS = {null, "EVENT_DATE", "VIEWS"};
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Dataset dataset;
+    private final LatencyRecorder recorder;
+    private final long seed;
+    private final double skew;
+    private final int burstSize;
+    private final int pageSize;
+    private final Operation[] operations;
+    private final int[] weights;
+    private volatile boolean running = true;
+
+    TrafficDriver(LoadTestConfig config, String baseUrl, Dataset dataset, LatencyRecorder recorder) {
+
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .build();
+        this.baseUrl = baseUrl;
+        this.dataset = dataset;
+        this.recorder = recorder;
+        this.seed = config.getLong("seed");
+        this.skew = config.getDouble("detail-skew");
+        this.burstSize = config.getInt("burst-size");
+        this.pageSize = config.getInt("search-page-size");
+        this.operations = Operation.values();
+        this.weights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += config.getInt("mix." + operations[i].getName());
+            weights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Сумма долей mix.* должна быть положительной");
+        }
+        if (dataset.getPublished().length == 0) {
+            throw new IllegalArgumentException("Нет опубликованных событий, уменьшите pending-share");
+        }
+    }
+
+    /**
+     * Прогрев без записи, затем замер. Возвращает длительность замера в секундах.
+     */
+    double run(int threads, long warmupSeconds, long durationSeconds) throws InterruptedException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            Random random = new Random(seed + i);
+            executor.execute(() -> loop(random));
+        }
+
+        log.info("Прогрев {} с, {} потоков", warmupSeconds, threads);
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        recorder.reset();
+        long start = System.nanoTime();
+        log.info("Замер {} с", durationSeconds);
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        running = false;
+        long end = System.nanoTime();
+
+        executor.shutdown();
+        if (!executor.awaitTermination(TIMEOUT.toSeconds() * 2, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        return (end - start) / 1e9;
+    }
+
+    private void loop(Random random) {
+
+        while (running) {
+            try {
+                switch (pick(random)) {
+                    case PUBLIC_SEARCH:
+                        search(random);
+                        break;
+                    case EVENT_DETAIL:
+                        send(DETAIL, get("/events/" + popularEvent(random)));
+                        break;
+                    case REQUEST_BURST:
+                        burst(random);
+                        break;
+                    case ADMIN_MODERATION:
+                        moderate(random);
+                        break;
+                    case BULK_MODERATION:
+                        moderateRequests(random);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Операция завершилась исключением: {}", e.toString());
+            }
+        }
+    }
+
+    private Operation pick(Random random) {
+
+        int value = random.nextInt(weights[weights.length - 1]);
+        for (int i = 0; i < weights.length; i++) {
+            if (value < weights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private void search(Random random) throws InterruptedException {
+
+        StringBuilder query = new StringBuilder("/events?size=").append(pageSize);
+        if (random.nextInt(10) < 3) {
+            query.append("&text=").append(URLEncoder.encode(DatasetSeeder.word(random), StandardCharsets.UTF_8));
+        }
+        if (random.nextBoolean()) {
+            int count = 1 + random.nextInt(3);
+            query.append("&categories=");
+            for (int i = 0; i < count; i++) {
+                query.append(i == 0 ? "" : ",").append(1 + random.nextInt(dataset.getCategories()));
+            }
+        }
+        if (random.nextInt(5) == 0) {
+            query.append("&paid=").append(random.nextBoolean());
+        }
+        if (random.nextInt(10) < 3) {
+            query.append("&onlyAvailable=true");
+        }
+        if (random.nextInt(10) == 0) {
+            query.append("&lat=").append(Dataset.MIN_LAT + random.nextFloat() * Dataset.SPAN)
+                    .append("&lon=").append(Dataset.MIN_LON + random.nextFloat() * Dataset.SPAN)
+                    .append("&radius=").append(5 + random.nextInt(25));
+        } else {
+            String sort = SORTS[random.nextInt(SORTS.length)];
+            if (sort != null) {
+                query.append("&sort=").append(sort);
+            }
+        }
+        if (random.nextInt(5) == 0) {
+            query.append("&from=").append(pageSize * (1 + random.nextInt(10)));
+        }
+        send(SEARCH, get(query.toString()));
+    }
+
+    private void burst(Random random) throws InterruptedException {
+
+        long eventId = popularEvent(random);
+        long initiator = dataset.getInitiator(eventId);
+        Set<Long> users = new HashSet<>();
+        int size = Math.min(burstSize, dataset.getUsers() - 1);
+        while (users.size() < size) {
+            long user = 1 + random.nextInt(dataset.getUsers());
+            if (user != initiator) {
+                users.add(user);
+            }
+        }
+
+        List<CompletableFuture<Void>> responses = new ArrayList<>();
+        for (long user : users) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + user + "/requests?eventId=" + eventId))
+                    .timeout(TIMEOUT)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            long start = System.nanoTime();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        long nanos = System.nanoTime() - start;
+                        if (error != null) {
+                            recorder.recordFailure(REQUEST, nanos);
+                        } else {
+                            recorder.record(REQUEST, nanos, response.statusCode());
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void moderate(Random random) throws InterruptedException {
+
+        send(ADMIN_SEARCH, get("/admin/events?states=PENDING&size=" + pageSize));
+        Long eventId = dataset.getPending().poll();
+        if (eventId == null) {
+            return;
+        }
+        String action = random.nextInt(5) == 0 ? "REJECT_EVENT" : "PUBLISH_EVENT";
+        send(MODERATION, HttpRequest.newBuilder(URI.create(baseUrl + "/admin/events/" + eventId))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"stateAction\":\"" + action + "\"}"))
+                .build());
+    }
+
+    private void moderateRequests(Random random) throws InterruptedException {
+
+        Dataset.BulkEvent event = dataset.getBulkModeration().poll();
+        if (event == null) {
+            return;
+        }
+        boolean confirm = random.nextBoolean();
+        StringBuilder body = new StringBuilder("{\"requestIds\":[");
+        for (int i = 0; i < event.getSize(); i++) {
+            body.append(i == 0 ? "" : ",").append(event.getFirstRequestId() + i);
+        }
+        body.append("],\"status\":\"").append(confirm ? "CONFIRMED" : "REJECTED").append("\"}");
+        send(confirm ? BULK_CONFIRM : BULK_REJECT, HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + event.getInitiator()
+                        + "/events/" + event.getEventId() + "/requests"))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build());
+    }
+
+    private long popularEvent(Random random) {
+
+        long[] published = dataset.getPublished();
+        return published[(int) (published.length * Math.pow(random.nextDouble(), skew))];
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT).GET().build();
+    }
+
+    private void send(String endpoint, HttpRequest request) throws InterruptedException {
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            recorder.record(endpoint, System.nanoTime() - start, response.statusCode());
+        } catch (IOException e) {
+            recorder.recordFailure(endpoint, System.nanoTime() - start);
+        }
+    }
+
+    enum Operation {
+        PUBLIC_SEARCH("public-search"),
+        EVENT_DETAIL("event-detail"),
+        REQUEST_BURST("request-burst"),
+        ADMIN_MODERATION("admin-moderation"),
+        BULK_MODERATION("bulk-moderation");
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+    }
+}
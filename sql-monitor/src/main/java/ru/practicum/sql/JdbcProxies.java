@@ -0,0 +1,127 @@
+package ru.practicum.sql;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Динамические прокси DataSource -> Connection -> Statement, замеряющие каждый execute*.
+ * Всё остальное, включая unwrap, уходит в исходный объект: вызовы через развёрнутое соединение не учитываются.
+ */
+final class JdbcProxies {
+
+    private static final Set<String> EXECUTE = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private JdbcProxies() {
+    }
+
+    static DataSource dataSource(DataSource target, Supplier<SqlMonitor> monitor) {
+
+        Class<?>[] interfaces = target instanceof Closeable
+                ? new Class<?>[]{DataSource.class, Closeable.class}
+                : new Class<?>[]{DataSource.class};
+        return (DataSource) Proxy.newProxyInstance(JdbcProxies.class.getClassLoader(), interfaces,
+                new Handler(target) {
+                    @Override
+                    Object invoke(Method method, Object[] args) throws Throwable {
+                        Object result = call(method, args);
+                        return method.getName().equals("getConnection") ? connection((Connection) result, monitor) : result;
+                    }
+                });
+    }
+
+    private static Connection connection(Connection target, Supplier<SqlMonitor> monitor) {
+
+        return (Connection) Proxy.newProxyInstance(JdbcProxies.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new Handler(target) {
+                    @Override
+                    Object invoke(Method method, Object[] args) throws Throwable {
+                        Object result = call(method, args);
+                        switch (method.getName()) {
+                            case "createStatement":
+                                return statement(Statement.class, (Statement) result, null, monitor);
+                            case "prepareStatement":
+                                return statement(PreparedStatement.class, (Statement) result, (String) args[0], monitor);
+                            case "prepareCall":
+                                return statement(CallableStatement.class, (Statement) result, (String) args[0], monitor);
+                            default:
+                                return result;
+                        }
+                    }
+                });
+    }
+
+    private static Object statement(Class<? extends Statement> type, Statement target, String preparedSql, Supplier<SqlMonitor> monitor) {
+
+        return Proxy.newProxyInstance(JdbcProxies.class.getClassLoader(), new Class<?>[]{type},
+                new Handler(target) {
+                    private String batchSql;
+
+                    @Override
+                    Object invoke(Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if (name.equals("addBatch") && args != null && args.length == 1) {
+                            batchSql = (String) args[0];
+                        }
+                        if (!EXECUTE.contains(name)) {
+                            return call(method, args);
+                        }
+                        String sql = preparedSql;
+                        if (sql == null) {
+                            sql = args != null && args.length > 0 ? (String) args[0] : batchSql;
+                        }
+                        long start = System.nanoTime();
+                        try {
+                            return call(method, args);
+                        } finally {
+                            monitor.get().record(sql, System.nanoTime() - start);
+                        }
+                    }
+                });
+    }
+
+    private abstract static class Handler implements InvocationHandler {
+
+        private final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        abstract Object invoke(Method method, Object[] args) throws Throwable;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SqlMonitor:" + target;
+                default:
+                    return invoke(method, args);
+            }
+        }
+
+        Object call(Method method, Object[] args) throws Throwable {
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
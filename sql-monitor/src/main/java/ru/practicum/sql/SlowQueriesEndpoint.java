@@ -0,0 +1,24 @@
+package ru.practicum.sql;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * /actuator/slowqueries - журнал медленных запросов из SqlMonitor.
+ */
+@Component
+@Endpoint(id = "slowqueries")
+@RequiredArgsConstructor
+public class SlowQueriesEndpoint {
+
+    private final SqlMonitor monitor;
+
+    @ReadOperation
+    public List<SlowQuery> slowQueries() {
+        return monitor.getSlowQueries();
+    }
+}
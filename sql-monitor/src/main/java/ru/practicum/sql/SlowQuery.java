@@ -0,0 +1,14 @@
+package ru.practicum.sql;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+public class SlowQuery {
+
+    LocalDateTime time;
+    String endpoint;
+    String sql;
+    double durationMs;
+}
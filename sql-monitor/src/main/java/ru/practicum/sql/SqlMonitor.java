@@ -0,0 +1,130 @@
+package ru.practicum.sql;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Учёт SQL по HTTP-запросам. Прокси JDBC сообщают сюда о каждом выполненном запросе;
+ * если поток обслуживает HTTP-запрос (см. SqlMonitorFilter), запрос засчитывается ему.
+ * Медленные запросы любого потока попадают в журнал фиксированного размера, старые вытесняются.
+ * Время - только выполнение execute*, чтение ResultSet сюда не входит.
+ */
+@Slf4j
+@Component
+public class SqlMonitor {
+
+    private final MeterRegistry meterRegistry;
+    private final long slowThresholdNanos;
+    private final int slowLogSize;
+    private final int nPlusOneThreshold;
+    private final ThreadLocal<SqlRequestContext> current = new ThreadLocal<>();
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private final Cache<String, String> shapes;
+    private final Counter slowCounter;
+
+    public SqlMonitor(MeterRegistry meterRegistry,
+                      @Value("${sql-monitor.slow-threshold-ms:100}") long slowThresholdMs,
+                      @Value("${sql-monitor.slow-log-size:200}") int slowLogSize,
+                      @Value("${sql-monitor.n-plus-one-threshold:10}") int nPlusOneThreshold,
+                      @Value("${sql-monitor.shape-cache-size:10000}") int shapeCacheSize) {
+        this.meterRegistry = meterRegistry;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.slowLogSize = slowLogSize;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.shapes = Caffeine.newBuilder().maximumSize(shapeCacheSize).build();
+        this.slowCounter = Counter.builder("sql.slow")
+                .description("Запросы дольше sql-monitor.slow-threshold-ms")
+                .register(meterRegistry);
+    }
+
+    SqlRequestContext begin(HttpServletRequest request) {
+
+        SqlRequestContext context = new SqlRequestContext(request);
+        current.set(context);
+        return context;
+    }
+
+    void end(SqlRequestContext context) {
+
+        current.remove();
+        String method = context.getMethod();
+        String uri = context.getUri();
+        DistributionSummary.builder("sql.request.statements")
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(context.getStatements());
+        Timer.builder("sql.request.time")
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(context.getNanos(), TimeUnit.NANOSECONDS);
+
+        for (Map.Entry<String, Integer> shape : context.getShapes().entrySet()) {
+            if (shape.getValue() > nPlusOneThreshold) {
+                Counter.builder("sql.n_plus_one")
+                        .tag("method", method)
+                        .tag("uri", uri)
+                        .register(meterRegistry)
+                        .increment();
+                log.warn("Похоже на N+1: {} выполнил {} одинаковых запросов: {}", context.getEndpoint(), shape.getValue(), shape.getKey());
+            }
+        }
+    }
+
+    void record(String sql, long nanos) {
+
+        SqlRequestContext context = current.get();
+        if (context == null && nanos < slowThresholdNanos) {
+            return;
+        }
+        String shape = sql == null ? "?" : shapes.get(sql, SqlShapes::of);
+        if (context != null) {
+            context.add(shape, nanos);
+        }
+        if (nanos >= slowThresholdNanos) {
+            String endpoint = context != null ? context.getEndpoint() : "[" + Thread.currentThread().getName() + "]";
+            SlowQuery slowQuery = new SlowQuery(LocalDateTime.now(), endpoint, shape, nanos / 1_000_000.0);
+            synchronized (slowQueries) {
+                if (slowQueries.size() >= slowLogSize) {
+                    slowQueries.pollFirst();
+                }
+                slowQueries.addLast(slowQuery);
+            }
+            slowCounter.increment();
+            log.warn("Медленный запрос {} мс, {}: {}", Math.round(slowQuery.getDurationMs()), endpoint, shape);
+        }
+    }
+
+    /**
+     * Журнал медленных запросов, новые первыми.
+     */
+    public List<SlowQuery> getSlowQueries() {
+
+        List<SlowQuery> result;
+        synchronized (slowQueries) {
+            result = new ArrayList<>(slowQueries);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+}
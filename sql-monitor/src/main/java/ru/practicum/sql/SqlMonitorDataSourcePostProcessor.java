@@ -0,0 +1,45 @@
+package ru.practicum.sql;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает DataSource приложения в JdbcProxies. SqlMonitor берётся при первом запросе к БД, а не при создании
+ * DataSource: иначе MeterRegistry и его привязки метрик пула соединений создавались бы внутри создания DataSource.
+ */
+@Component
+public class SqlMonitorDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<SqlMonitor> monitor;
+    private final boolean enabled;
+    private volatile SqlMonitor resolved;
+
+    public SqlMonitorDataSourcePostProcessor(ObjectProvider<SqlMonitor> monitor,
+                                             @Value("${sql-monitor.enabled:true}") boolean enabled) {
+        this.monitor = monitor;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+
+        if (enabled && bean instanceof DataSource) {
+            return JdbcProxies.dataSource((DataSource) bean, this::getMonitor);
+        }
+        return bean;
+    }
+
+    private SqlMonitor getMonitor() {
+
+        SqlMonitor result = resolved;
+        if (result == null) {
+            result = monitor.getObject();
+            resolved = result;
+        }
+        return result;
+    }
+}
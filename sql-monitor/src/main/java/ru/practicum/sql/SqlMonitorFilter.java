@@ -0,0 +1,113 @@
+package ru.practicum.sql;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Открывает SqlRequestContext на время запроса и отдаёт итог в заголовках X-Sql-Statements и X-Sql-Time-Ms.
+ * Заголовки ставятся перед первой записью тела: после коммита ответа их уже не добавить.
+ */
+@Component
+public class SqlMonitorFilter extends OncePerRequestFilter {
+
+    static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    static final String TIME_HEADER = "X-Sql-Time-Ms";
+
+    private final SqlMonitor monitor;
+    private final boolean enabled;
+
+    public SqlMonitorFilter(SqlMonitor monitor, @Value("${sql-monitor.enabled:true}") boolean enabled) {
+        this.monitor = monitor;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        SqlRequestContext context = monitor.begin(request);
+        HeaderWriter wrapper = new HeaderWriter(response, context);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            if (!response.isCommitted()) {
+                wrapper.writeHeaders();
+            }
+            monitor.end(context);
+        }
+    }
+
+    private static class HeaderWriter extends HttpServletResponseWrapper {
+
+        private final SqlRequestContext context;
+        private boolean written;
+
+        HeaderWriter(HttpServletResponse response, SqlRequestContext context) {
+            super(response);
+            this.context = context;
+        }
+
+        void writeHeaders() {
+
+            if (written) {
+                return;
+            }
+            written = true;
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.setHeader(STATEMENTS_HEADER, String.valueOf(context.getStatements()));
+            response.setHeader(TIME_HEADER, String.format(Locale.ROOT, "%.3f", context.getNanos() / 1_000_000.0));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ru.practicum.sql;
+
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Запросы к БД одного HTTP-запроса. Живёт в потоке запроса, поэтому без синхронизации.
+ */
+class SqlRequestContext {
+
+    static final String UNKNOWN = "UNKNOWN";
+
+    private final HttpServletRequest request;
+    private final Map<String, Integer> shapes = new HashMap<>();
+    private int statements;
+    private long nanos;
+
+    SqlRequestContext(HttpServletRequest request) {
+        this.request = request;
+    }
+
+    void add(String shape, long nanos) {
+        this.statements++;
+        this.nanos += nanos;
+        shapes.merge(shape, 1, Integer::sum);
+    }
+
+    int getStatements() {
+        return statements;
+    }
+
+    long getNanos() {
+        return nanos;
+    }
+
+    Map<String, Integer> getShapes() {
+        return shapes;
+    }
+
+    String getMethod() {
+        return request.getMethod();
+    }
+
+    /**
+     * Шаблон пути из маппинга контроллера, например /events/{id}, чтобы не плодить теги по каждому id.
+     */
+    String getUri() {
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : UNKNOWN;
+    }
+
+    String getEndpoint() {
+        return getMethod() + " " + getUri();
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.sql;
+
+import java.util.regex.Pattern;
+
+/**
+ * Форма запроса: SQL без литералов и переводов строк, списки IN (?, ?, ...) и строки VALUES свёрнуты в одну.
+ * Запросы с одной формой считаются похожими.
+ */
+final class SqlShapes {
+
+    static final int MAX_LENGTH = 1000;
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Pattern STRINGS = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBERS = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN \\(\\?(?:, ?\\?)+\\)");
+    private static final Pattern VALUES_ROWS = Pattern.compile("(\\(\\?(?:, ?\\?)*\\))(?:, ?\\(\\?(?:, ?\\?)*\\))+");
+
+    private SqlShapes() {
+    }
+
+    static String of(String sql) {
+
+        String shape = SPACES.matcher(sql).replaceAll(" ").trim();
+        shape = STRINGS.matcher(shape).replaceAll("?");
+        shape = NUMBERS.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("IN (?)");
+        shape = VALUES_ROWS.matcher(shape).replaceAll("$1");
+        return shape.length() > MAX_LENGTH ? shape.substring(0, MAX_LENGTH) : shape;
+    }
+}
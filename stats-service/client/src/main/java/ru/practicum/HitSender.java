@@ -0,0 +1,270 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.dto.HitDto;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Отправляет hits в stats-server в фоне: hits копятся в ограниченной очереди
+ * и уходят пачками по достижении batch-size или по истечении flush-interval.
+ */
+@Slf4j
+@Service
+public class HitSender {
+
+    private final StatsClient client;
+    private final ObjectMapper objectMapper;
+    private final boolean async;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final HitOverflowPolicy overflowPolicy;
+    private final Path spillFile;
+    private final BlockingQueue<HitDto> queue;
+
+    private final Object spillLock = new Object();
+    private final AtomicBoolean spillPending = new AtomicBoolean(false);
+    private volatile boolean running;
+    private Thread worker;
+
+    private final Counter droppedHits;
+    private final Counter spilledHits;
+    private final Timer flushTimer;
+
+    @Autowired
+    public HitSender(StatsClient client,
+                     ObjectMapper objectMapper,
+                     MeterRegistry meterRegistry,
+                     @Value("${stats-server.hits.async:true}") boolean async,
+                     @Value("${stats-server.hits.queue-capacity:10000}") int queueCapacity,
+                     @Value("${stats-server.hits.batch-size:100}") int batchSize,
+                     @Value("${stats-server.hits.flush-interval-ms:500}") long flushIntervalMs,
+                     @Value("${stats-server.hits.overflow:DROP}") HitOverflowPolicy overflowPolicy,
+                     @Value("${stats-server.hits.spill-file:stats-hits-spill.ndjson}") String spillFile) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.async = async;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.overflowPolicy = overflowPolicy;
+        this.spillFile = Paths.get(spillFile);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("stats.client.queue.size", queue, BlockingQueue::size)
+                .description("Hits waiting to be sent to stats-server")
+                .register(meterRegistry);
+        this.droppedHits = Counter.builder("stats.client.hits.dropped")
+                .description("Hits lost because of a full queue or a failed flush")
+                .register(meterRegistry);
+        this.spilledHits = Counter.builder("stats.client.hits.spilled")
+                .description("Hits written to the local spill file")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("stats.client.flush")
+                .description("Time to send one batch of hits to stats-server")
+                .register(meterRegistry);
+    }
+
+    public void addHit(HitDto hitDto) {
+
+        if (!async) {
+            client.addHit(hitDto);
+            return;
+        }
+
+        if (queue.offer(hitDto)) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(hitDto);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedHits.increment();
+                }
+                break;
+            case SPILL:
+                spill(List.of(hitDto));
+                break;
+            default:
+                droppedHits.increment();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+
+        if (!async) {
+            return;
+        }
+        spillPending.set(Files.exists(spillFile));
+        running = true;
+        worker = new Thread(this::run, "stats-hit-sender");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 5000);
+
+        List<HitDto> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+    }
+
+    private void run() {
+
+        List<HitDto> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                boolean sent = flush(batch);
+                batch.clear();
+                if (sent && spillPending.get()) {
+                    replaySpill();
+                }
+            } else if (spillPending.get()) {
+                replaySpill();
+            }
+        }
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void collect(List<HitDto> batch) throws InterruptedException {
+
+        HitDto first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            HitDto hit = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (hit == null) {
+                return;
+            }
+            batch.add(hit);
+        }
+    }
+
+    private boolean flush(List<HitDto> batch) {
+
+        long start = System.nanoTime();
+        try {
+            client.addHits(batch);
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Не удалось отправить {} hits в stats-server: {}", batch.size(), e.getMessage());
+            if (overflowPolicy == HitOverflowPolicy.SPILL) {
+                spill(batch);
+            } else {
+                droppedHits.increment(batch.size());
+            }
+            return false;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void spill(List<HitDto> hits) {
+
+        synchronized (spillLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (HitDto hit : hits) {
+                    writer.write(objectMapper.writeValueAsString(hit));
+                    writer.newLine();
+                }
+                spilledHits.increment(hits.size());
+                spillPending.set(true);
+            } catch (IOException e) {
+                log.warn("Не удалось записать {} hits в {}: {}", hits.size(), spillFile, e.getMessage());
+                droppedHits.increment(hits.size());
+            }
+        }
+    }
+
+    private void replaySpill() {
+
+        List<String> lines;
+        synchronized (spillLock) {
+            spillPending.set(false);
+            try {
+                if (!Files.exists(spillFile)) {
+                    return;
+                }
+                lines = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+                Files.delete(spillFile);
+            } catch (IOException e) {
+                log.warn("Не удалось прочитать {}: {}", spillFile, e.getMessage());
+                spillPending.set(true);
+                return;
+            }
+        }
+
+        List<HitDto> batch = new ArrayList<>(batchSize);
+        for (String line : lines) {
+            try {
+                batch.add(objectMapper.readValue(line, HitDto.class));
+            } catch (JsonProcessingException e) {
+                droppedHits.increment();
+            }
+            if (batch.size() == batchSize) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+}
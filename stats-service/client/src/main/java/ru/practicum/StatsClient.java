@@ -1,45 +1,122 @@
 package ru.practicum;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsRequestDto;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static ru.practicum.Util.DATE_FORMAT;
 
 @Service
 public class StatsClient extends BaseClient {
 
+    private final MeterRegistry meterRegistry;
+
     public ResponseEntity<Object> addHit(HitDto hitDto) {
-        return post("/hit", hitDto);
+        return timed("addHit", () -> post("/hit", hitDto));
+    }
+
+    public void addHits(List<HitDto> hits) {
+        ResponseEntity<Object> response = timed("addHits", () -> post("/hits/batch", hits));
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new IllegalStateException("stats-server ответил " + response.getStatusCode());
+        }
     }
 
     @Autowired
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder, MeterRegistry meterRegistry) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
                         .requestFactory(HttpComponentsClientHttpRequestFactory::new)
                         .build()
         );
+        this.meterRegistry = meterRegistry;
     }
 
     public ResponseEntity<Object> findStats(LocalDateTime start, LocalDateTime end, String uris, boolean unique) {
 
+        return findStats(start, end, uris, unique, false);
+    }
+
+    public ResponseEntity<Object> findStats(LocalDateTime start, LocalDateTime end, String uris, boolean unique, boolean approximate) {
+
         Map<String, Object> parameters = Map.of(
                 "start", start.format(DateTimeFormatter.ofPattern(DATE_FORMAT)),
                 "end", end.format(DateTimeFormatter.ofPattern(DATE_FORMAT)),
                 "uris", uris,
-                "unique", unique
+                "unique", unique,
+                "approximate", approximate
         );
-        return get("/stats?start={start}&end={end}&uris={uris}&unique={unique}", parameters);
+        return timed("findStats", () -> get("/stats?start={start}&end={end}&uris={uris}&unique={unique}&approximate={approximate}", parameters));
+    }
+
+    /**
+     * Список uris уходит в теле POST /stats, поэтому его длина не ограничена размером строки запроса.
+     * Пустой список - статистика по всем uri.
+     */
+    public ResponseEntity<Object> findStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, boolean approximate) {
+
+        StatsRequestDto request = StatsRequestDto.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .unique(unique)
+                .approximate(approximate)
+                .build();
+        return timed("findStats", () -> post("/stats", request));
+    }
+
+    /**
+     * Таймер stats.client.requests с тегами call и outcome: SUCCESS, CLIENT_ERROR, SERVER_ERROR и т.п. по коду ответа
+     * или UNKNOWN, если ответа не было (stats-server недоступен, таймаут).
+     */
+    private ResponseEntity<Object> timed(String call, Supplier<ResponseEntity<Object>> request) {
+
+        long start = System.nanoTime();
+        String outcome = "UNKNOWN";
+        try {
+            ResponseEntity<Object> response = request.get();
+            outcome = outcome(response.getStatusCode());
+            return response;
+        } finally {
+            Timer.builder("stats.client.requests")
+                    .tag("call", call)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String outcome(HttpStatus status) {
+
+        switch (status.series()) {
+            case INFORMATIONAL:
+                return "INFORMATIONAL";
+            case SUCCESSFUL:
+                return "SUCCESS";
+            case REDIRECTION:
+                return "REDIRECTION";
+            case CLIENT_ERROR:
+                return "CLIENT_ERROR";
+            default:
+                return "SERVER_ERROR";
+        }
     }
 }
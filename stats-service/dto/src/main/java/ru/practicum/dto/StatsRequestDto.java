@@ -0,0 +1,31 @@
+package ru.practicum.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static ru.practicum.Util.DATE_FORMAT;
+
+/**
+ * Параметры /stats в теле POST: длинный список uris не помещается в строку запроса.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class StatsRequestDto {
+    @NotNull
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = DATE_FORMAT)
+    LocalDateTime start;
+    @NotNull
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = DATE_FORMAT)
+    LocalDateTime end;
+    List<String> uris;
+    boolean unique;
+    boolean approximate;
+}
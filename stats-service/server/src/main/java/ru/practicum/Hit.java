@@ -1,28 +0,0 @@
-package ru.practicum;
-
-import lombok.*;
-import lombok.experimental.FieldDefaults;
-
-import javax.persistence.*;
-import java.time.LocalDateTime;
-
-@Data
-@Builder
-@AllArgsConstructor
-@NoArgsConstructor
-@Entity
-@Table(name = "hits")
-@FieldDefaults(level = AccessLevel.PRIVATE)
-public class Hit {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    Long id;
-    @Column
-    String app;
-    @Column
-    String uri;
-    @Column
-    String ip;
-    @Column(name = "time_stamp")
-    LocalDateTime timestamp;
-}
@@ -0,0 +1,41 @@
+package ru.practicum;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.dto.HitDto;
+
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Repository
+@RequiredArgsConstructor
+public class HitBatchRepository {
+
+    private static final String INSERT_HIT = "INSERT INTO hits (app_id, uri_id, ip, time_stamp) VALUES (?, ?, ?::INET, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HitLookupRepository hitLookupRepository;
+
+    public void saveAll(List<HitDto> hits) {
+
+        Set<String> apps = new HashSet<>();
+        Set<String> uris = new HashSet<>();
+        for (HitDto hit : hits) {
+            apps.add(hit.getApp());
+            uris.add(hit.getUri());
+        }
+        Map<String, Integer> appIds = hitLookupRepository.internApps(apps);
+        Map<String, Integer> uriIds = hitLookupRepository.internUris(uris);
+
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, hits.size(), (ps, hit) -> {
+            ps.setInt(1, appIds.get(hit.getApp()));
+            ps.setInt(2, uriIds.get(hit.getUri()));
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+    }
+}
@@ -1,14 +1,26 @@
 package ru.practicum;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.HitDto;
 import ru.practicum.dto.StatsDto;
+import ru.practicum.dto.StatsRequestDto;
+import ru.practicum.exception.StatsValidationException;
+import ru.practicum.trending.TrendingWindow;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 import static ru.practicum.Util.FORMATTER;
 
@@ -17,6 +29,8 @@ import static ru.practicum.Util.FORMATTER;
 public class HitController {
 
     private final HitService hitService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     @PostMapping("/hit")
     @ResponseStatus(value = HttpStatus.CREATED)  // для 201
@@ -25,16 +39,73 @@ public class HitController {
         hitService.addHit(hitDto);
     }
 
+    @PostMapping(value = "/hits/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(value = HttpStatus.CREATED)
+    public void addHits(@RequestBody List<HitDto> hits) {
+
+        hits.forEach(this::validateHit);
+        hitService.addHits(hits.stream());
+    }
+
+    @PostMapping(value = "/hits/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(value = HttpStatus.CREATED)
+    public void addHitsNdjson(HttpServletRequest request) throws IOException {
+
+        try (BufferedReader reader = request.getReader()) {
+            hitService.addHits(reader.lines()
+                    .filter(line -> !line.isBlank())
+                    .map(this::parseHit));
+        }
+    }
+
     @GetMapping("/stats")
     @ResponseStatus(value = HttpStatus.OK)
     public List<StatsDto> getStats(@RequestParam("start") String start,
                                    @RequestParam("end") String end,
                                    @RequestParam(required = false) List<String> uris,
-                                   @RequestParam(required = false, defaultValue = "false") Boolean unique) {
+                                   @RequestParam(required = false, defaultValue = "false") Boolean unique,
+                                   @RequestParam(required = false, defaultValue = "false") Boolean approximate) {
 
         LocalDateTime startTime = LocalDateTime.parse(start, FORMATTER);
         LocalDateTime endTime = LocalDateTime.parse(end, FORMATTER);
 
-        return hitService.getStats(startTime, endTime, uris, unique);
+        return hitService.getStats(startTime, endTime, uris, unique, approximate);
+    }
+
+    @PostMapping(value = "/stats", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(value = HttpStatus.OK)
+    public List<StatsDto> findStats(@Valid @RequestBody StatsRequestDto request) {
+
+        return hitService.getStats(request.getStart(), request.getEnd(), request.getUris(), request.isUnique(),
+                request.isApproximate());
+    }
+
+    @GetMapping("/stats/trending")
+    @ResponseStatus(value = HttpStatus.OK)
+    public List<StatsDto> getTrending(@RequestParam(required = false, defaultValue = "1h") String window,
+                                      @RequestParam(required = false, defaultValue = "10") Integer limit) {
+
+        return hitService.getTrending(TrendingWindow.from(window), limit);
+    }
+
+    private HitDto parseHit(String line) {
+
+        HitDto hitDto;
+        try {
+            hitDto = objectMapper.readValue(line, HitDto.class);
+        } catch (JsonProcessingException e) {
+            throw new StatsValidationException("Некорректная строка hit: " + e.getOriginalMessage());
+        }
+        validateHit(hitDto);
+        return hitDto;
+    }
+
+    private void validateHit(HitDto hitDto) {
+
+        Set<ConstraintViolation<HitDto>> violations = validator.validate(hitDto);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<HitDto> violation = violations.iterator().next();
+            throw new StatsValidationException("Некорректный hit: " + violation.getPropertyPath() + " " + violation.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,129 @@
+package ru.practicum;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Справочники hit_apps и hit_uris: строка хранится один раз, hits ссылаются на неё по int id.
+ * id кэшируются в памяти, поэтому запись hits обычно не обращается к справочникам.
+ * Найденные в БД id попадают в кэш только после коммита, чтобы не закэшировать откаченную вставку.
+ */
+@Repository
+public class HitLookupRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Lookup apps;
+    private final Lookup uris;
+
+    public HitLookupRepository(JdbcTemplate jdbcTemplate,
+                               @Value("${stats-server.lookup.cache-size:100000}") long cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.apps = new Lookup("hit_apps", "name", cacheSize);
+        this.uris = new Lookup("hit_uris", "uri", cacheSize);
+    }
+
+    public Map<String, Integer> internApps(Collection<String> names) {
+
+        return apps.intern(names);
+    }
+
+    public Map<String, Integer> internUris(Collection<String> values) {
+
+        return uris.intern(values);
+    }
+
+    public List<Integer> findUriIds(Collection<String> values) {
+
+        return new ArrayList<>(uris.find(values).values());
+    }
+
+    private class Lookup {
+
+        private final String insertSql;
+        private final String selectSql;
+        private final Cache<String, Integer> cache;
+
+        Lookup(String table, String column, long cacheSize) {
+            this.insertSql = "INSERT INTO " + table + " (" + column + ") SELECT unnest(?::VARCHAR[]) " +
+                    "ON CONFLICT (" + column + ") DO NOTHING";
+            this.selectSql = "SELECT id, " + column + " FROM " + table + " WHERE " + column + " = ANY(?)";
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(cacheSize)
+                    .build();
+        }
+
+        Map<String, Integer> find(Collection<String> values) {
+
+            Map<String, Integer> ids = new HashMap<>(cache.getAllPresent(values));
+            Set<String> missing = missing(values, ids);
+            if (!missing.isEmpty()) {
+                ids.putAll(select(missing));
+            }
+            return ids;
+        }
+
+        Map<String, Integer> intern(Collection<String> values) {
+
+            Map<String, Integer> ids = find(values);
+            Set<String> missing = missing(values, ids);
+            if (!missing.isEmpty()) {
+                jdbcTemplate.update(insertSql, ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", missing.toArray())));
+                ids.putAll(select(missing));
+            }
+            return ids;
+        }
+
+        private Map<String, Integer> select(Set<String> values) {
+
+            Map<String, Integer> ids = new HashMap<>();
+            jdbcTemplate.query(selectSql,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", values.toArray())),
+                    rs -> {
+                        ids.put(rs.getString(2), rs.getInt(1));
+                    });
+            cacheAfterCommit(ids);
+            return ids;
+        }
+
+        private void cacheAfterCommit(Map<String, Integer> ids) {
+
+            if (ids.isEmpty()) {
+                return;
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        cache.putAll(ids);
+                    }
+                });
+            } else {
+                cache.putAll(ids);
+            }
+        }
+
+        private Set<String> missing(Collection<String> values, Map<String, Integer> ids) {
+
+            Set<String> missing = new TreeSet<>();
+            for (String value : values) {
+                if (!ids.containsKey(value)) {
+                    missing.add(value);
+                }
+            }
+            return missing;
+        }
+    }
+}
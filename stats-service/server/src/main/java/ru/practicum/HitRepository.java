@@ -1,50 +1,64 @@
 package ru.practicum;
 
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.practicum.dto.StatsDto;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * Агрегации по сырой таблице hits. Группировка идёт по int app_id/uri_id,
+ * строки из справочников подставляются уже к сгруппированному результату.
+ */
 @Repository
-public interface HitRepository extends JpaRepository<Hit, Long> {
-
-    @Query(value = "SELECT new ru.practicum.dto.StatsDto(h.app, h.uri, COUNT(DISTINCT h.ip)) " +
-            "FROM Hit AS h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<StatsDto> findAllStatsByDistinctUniqueIp(@Param("start") LocalDateTime start,
-                                                  @Param("end") LocalDateTime end);
-
-    @Query(value = "SELECT new ru.practicum.dto.StatsDto(h.app, h.uri, COUNT(h.ip)) " +
-            "FROM Hit AS h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(h.ip) DESC")
-    List<StatsDto> findAllStatsWithoutDistinctIp(@Param("start") LocalDateTime start,
-                                                 @Param("end") LocalDateTime end);
-
-    @Query(value = "SELECT new ru.practicum.dto.StatsDto(h.app, h.uri, COUNT(DISTINCT h.ip)) " +
-            "FROM Hit AS h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "AND h.uri IN :uris " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<StatsDto> findStatsByUrisByDistinctUniqueIp(@Param("start") LocalDateTime start,
-                                                     @Param("end") LocalDateTime end,
-                                                     @Param("uris") List<String> uris);
-
-    @Query(value = "SELECT new ru.practicum.dto.StatsDto(h.app, h.uri, COUNT(h.ip)) " +
-            "FROM Hit AS h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "AND h.uri IN :uris " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(h.ip) DESC")
-    List<StatsDto> findStatsByUrisWithoutDistinctIp(@Param("start") LocalDateTime start,
-                                                    @Param("end") LocalDateTime end,
-                                                    @Param("uris") List<String> uris);
+@RequiredArgsConstructor
+public class HitRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final HitLookupRepository hitLookupRepository;
+
+    public List<StatsDto> findAllStatsByDistinctUniqueIp(LocalDateTime start, LocalDateTime end) {
+
+        return findStats(start, end, null, "COUNT(DISTINCT ip)");
+    }
+
+    public List<StatsDto> findAllStatsWithoutDistinctIp(LocalDateTime start, LocalDateTime end) {
+
+        return findStats(start, end, null, "COUNT(*)");
+    }
+
+    public List<StatsDto> findStatsByUrisByDistinctUniqueIp(LocalDateTime start, LocalDateTime end, List<String> uris) {
+
+        List<Integer> uriIds = hitLookupRepository.findUriIds(uris);
+        return uriIds.isEmpty() ? List.of() : findStats(start, end, uriIds, "COUNT(DISTINCT ip)");
+    }
+
+    public List<StatsDto> findStatsByUrisWithoutDistinctIp(LocalDateTime start, LocalDateTime end, List<String> uris) {
+
+        List<Integer> uriIds = hitLookupRepository.findUriIds(uris);
+        return uriIds.isEmpty() ? List.of() : findStats(start, end, uriIds, "COUNT(*)");
+    }
+
+    private List<StatsDto> findStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, String aggregate) {
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end))
+                .addValue("uriIds", uriIds);
+
+        String sql = "SELECT a.name AS app, u.uri AS uri, s.hits FROM (" +
+                "SELECT app_id, uri_id, " + aggregate + " AS hits FROM hits " +
+                "WHERE time_stamp BETWEEN :start AND :end" +
+                (uriIds != null ? " AND uri_id IN (:uriIds)" : "") +
+                " GROUP BY app_id, uri_id) AS s " +
+                "JOIN hit_apps AS a ON a.id = s.app_id " +
+                "JOIN hit_uris AS u ON u.id = s.uri_id " +
+                "ORDER BY s.hits DESC";
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) ->
+                new StatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+    }
 }
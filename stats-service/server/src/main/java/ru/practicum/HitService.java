@@ -2,13 +2,19 @@ package ru.practicum;
 
 import ru.practicum.dto.HitDto;
 import ru.practicum.dto.StatsDto;
+import ru.practicum.trending.TrendingWindow;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface HitService {
 
     void addHit(HitDto hitDto);
 
-    List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique);
+    int addHits(Stream<HitDto> hits);
+
+    List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean approximate);
+
+    List<StatsDto> getTrending(TrendingWindow window, int limit);
 }
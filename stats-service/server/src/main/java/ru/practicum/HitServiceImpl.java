@@ -1,31 +1,55 @@
 package ru.practicum;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.HitDto;
 import ru.practicum.dto.StatsDto;
 import ru.practicum.exception.StatsValidationException;
+import ru.practicum.storage.HitStorage;
+import ru.practicum.trending.TrendingCounters;
+import ru.practicum.trending.TrendingWindow;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "hits.service", histogram = true)
 public class HitServiceImpl implements HitService {
 
-    private final HitRepository hitRepository;
+    private static final Pattern IPV4 = Pattern.compile("((25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)");
+    private static final Pattern IPV6_CHARS = Pattern.compile("[0-9a-fA-F.]*:[0-9a-fA-F:.]*");
+
+    private final HitStorage hitStorage;
+    private final TrendingCounters trendingCounters;
 
-    @Transactional
     @Override
     public void addHit(HitDto hitDto) {
 
-        hitRepository.save(HitMapper.returnHit(hitDto));
+        validateIp(hitDto.getIp());
+        hitStorage.save(hitDto);
+        trendingCounters.record(hitDto);
+    }
+
+    @Override
+    public int addHits(Stream<HitDto> hits) {
+
+        TrendingCounters.Batch batch = trendingCounters.batch();
+        int saved = hitStorage.saveAll(hits.peek(hit -> {
+            validateIp(hit.getIp());
+            batch.record(hit);
+        }));
+        batch.commit();
+        return saved;
     }
 
-    @Transactional(readOnly = true)
     @Override
-    public List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    public List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean approximate) {
 
         if (start != null && end != null) {
             if (start.isAfter(end)) {
@@ -33,18 +57,31 @@ public class HitServiceImpl implements HitService {
             }
         }
 
-        if (uris == null || uris.isEmpty()) {
-            if (unique) {
-                return hitRepository.findAllStatsByDistinctUniqueIp(start, end);
-            } else {
-                return hitRepository.findAllStatsWithoutDistinctIp(start, end);
-            }
-        } else {
-            if (unique) {
-                return hitRepository.findStatsByUrisByDistinctUniqueIp(start, end, uris);
-            } else {
-                return hitRepository.findStatsByUrisWithoutDistinctIp(start, end, uris);
-            }
+        return hitStorage.findStats(start, end, uris, unique, approximate);
+    }
+
+    @Override
+    public List<StatsDto> getTrending(TrendingWindow window, int limit) {
+
+        return trendingCounters.findTop(window, limit);
+    }
+
+    /**
+     * Проверка до хранилища, чтобы оба хранилища принимали одни и те же ip: пачка с некорректным ip
+     * прерывается на нём, и хранилище не сохраняет из неё ничего.
+     */
+    private static void validateIp(String ip) {
+
+        if (IPV4.matcher(ip).matches()) {
+            return;
+        }
+        if (!IPV6_CHARS.matcher(ip).matches()) {
+            throw new StatsValidationException("Некорректный ip: " + ip);
+        }
+        try {
+            InetAddress.getByName(ip);
+        } catch (UnknownHostException e) {
+            throw new StatsValidationException("Некорректный ip: " + ip);
         }
     }
 }
@@ -0,0 +1,215 @@
+package ru.practicum.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Ведёт секции таблицы hits: заранее создаёт секции на interval * ahead вперёд
+ * и удаляет секции старше retention интервалов (0 - хранить всё). Вместе с секциями в той же транзакции удаляются
+ * строки hits_default, hit_rollups и hit_sketches до той же границы, чтобы /stats по агрегатам и по hits совпадали.
+ * Старую несекционированную таблицу hits переносит в секционированную при старте,
+ * а строковые app/uri/ip старой схемы переводит в id справочников hit_apps/hit_uris и INET.
+ * Строки, чей ip не приводится к INET, перед переводом переносятся как есть в hits_quarantine.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats-server.storage.type", havingValue = "jdbc", matchIfMissing = true)
+public class HitPartitionManager {
+
+    private static final String CREATE_PARTITIONED_HITS = "CREATE TABLE hits (" +
+            "id BIGINT DEFAULT nextval('hits_id_seq') NOT NULL, " +
+            "app_id INTEGER NOT NULL, " +
+            "uri_id INTEGER NOT NULL, " +
+            "ip INET NOT NULL, " +
+            "time_stamp TIMESTAMP WITHOUT TIME ZONE NOT NULL, " +
+            "CONSTRAINT pk_hits PRIMARY KEY (id, time_stamp)" +
+            ") PARTITION BY RANGE (time_stamp)";
+
+    private static final String CREATE_INDEXES = "CREATE INDEX IF NOT EXISTS hits_uri_id_time_stamp_idx ON hits (uri_id, time_stamp); " +
+            "CREATE INDEX IF NOT EXISTS hits_time_stamp_brin_idx ON hits USING BRIN (time_stamp)";
+
+    private static final String CREATE_VALID_INET = "CREATE FUNCTION pg_temp.hits_valid_inet(value TEXT) RETURNS BOOLEAN " +
+            "LANGUAGE plpgsql IMMUTABLE AS $$ BEGIN PERFORM value::INET; RETURN value IS NOT NULL; " +
+            "EXCEPTION WHEN OTHERS THEN RETURN FALSE; END $$";
+
+    private static final int MIGRATION_PARTITIONS_BACK = 24;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitionInterval interval;
+    private final int ahead;
+    private final int retention;
+
+    public HitPartitionManager(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${stats-server.partitions.interval:MONTH}") PartitionInterval interval,
+                               @Value("${stats-server.partitions.ahead:3}") int ahead,
+                               @Value("${stats-server.partitions.retention:0}") int retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.interval = interval;
+        this.ahead = ahead;
+        this.retention = retention;
+    }
+
+    @PostConstruct
+    public void init() {
+
+        migrateLegacyTable();
+        migrateTextColumns();
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT");
+        jdbcTemplate.execute(CREATE_INDEXES);
+        maintain();
+    }
+
+    @Scheduled(cron = "${stats-server.partitions.cron:0 0 3 * * *}")
+    public void maintain() {
+
+        LocalDate current = interval.start(LocalDate.now());
+        LocalDate last = current;
+        for (int i = 0; i < ahead; i++) {
+            last = interval.next(last);
+        }
+        createPartitions(current, last);
+
+        if (retention > 0) {
+            dropPartitionsBefore(interval.minus(current, retention));
+        }
+    }
+
+    private void createPartitions(LocalDate from, LocalDate to) {
+
+        for (LocalDate start = interval.start(from); !start.isAfter(to); start = interval.next(start)) {
+            String name = interval.partitionName(start);
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF hits " +
+                        "FOR VALUES FROM ('" + Timestamp.valueOf(start.atStartOfDay()) + "') " +
+                        "TO ('" + Timestamp.valueOf(interval.next(start).atStartOfDay()) + "')");
+            } catch (DataAccessException e) {
+                log.warn("Не удалось создать секцию {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private void dropPartitionsBefore(LocalDate border) {
+
+        List<String> partitions = jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = 'hits' AND c.relname LIKE 'hits\\_p%'", String.class);
+
+        Timestamp before = Timestamp.valueOf(border.atStartOfDay());
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String partition : partitions) {
+                LocalDate start;
+                try {
+                    start = interval.parseStart(partition);
+                } catch (RuntimeException e) {
+                    continue;
+                }
+                if (!interval.next(start).isAfter(border)) {
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                    log.info("Секция {} удалена по сроку хранения.", partition);
+                }
+            }
+
+            int defaults = jdbcTemplate.update("DELETE FROM hits_default WHERE time_stamp < ?", before);
+            int rollups = jdbcTemplate.update("DELETE FROM hit_rollups WHERE bucket_start < ?", before);
+            int sketches = jdbcTemplate.update("DELETE FROM hit_sketches WHERE bucket_start < ?", before);
+            if (defaults + rollups + sketches > 0) {
+                log.info("По сроку хранения до {} удалено строк: hits_default {}, hit_rollups {}, hit_sketches {}.",
+                        border, defaults, rollups, sketches);
+            }
+        });
+    }
+
+    private void migrateLegacyTable() {
+
+        List<String> kind = jdbcTemplate.queryForList("SELECT c.relkind::text FROM pg_class c " +
+                "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE c.relname = 'hits' AND n.nspname = current_schema()", String.class);
+        if (kind.isEmpty() || !"r".equals(kind.get(0))) {
+            return;
+        }
+
+        log.info("Перенос таблицы hits в секционированную.");
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE hits RENAME TO hits_legacy");
+            jdbcTemplate.execute("ALTER TABLE hits_legacy ALTER COLUMN id DROP IDENTITY IF EXISTS, ALTER COLUMN id DROP DEFAULT");
+            jdbcTemplate.execute("ALTER SEQUENCE IF EXISTS hits_id_seq OWNED BY NONE");
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS hits_id_seq CACHE 50");
+            jdbcTemplate.execute("DROP INDEX IF EXISTS hits_uri_time_stamp_idx");
+            jdbcTemplate.execute("DROP INDEX IF EXISTS hits_time_stamp_brin_idx");
+            jdbcTemplate.execute(CREATE_PARTITIONED_HITS);
+            jdbcTemplate.execute("CREATE TABLE hits_default PARTITION OF hits DEFAULT");
+
+            Timestamp min = jdbcTemplate.queryForObject("SELECT MIN(time_stamp) FROM hits_legacy", Timestamp.class);
+            if (min != null) {
+                LocalDate oldest = interval.minus(LocalDate.now(), MIGRATION_PARTITIONS_BACK);
+                LocalDate from = min.toLocalDateTime().toLocalDate();
+                createPartitions(from.isAfter(oldest) ? from : oldest, LocalDate.now());
+            }
+            quarantineInvalidIps("hits_legacy");
+            fillLookups("hits_legacy");
+            jdbcTemplate.execute("INSERT INTO hits (id, app_id, uri_id, ip, time_stamp) " +
+                    "SELECT l.id, a.id, u.id, l.ip::INET, l.time_stamp FROM hits_legacy AS l " +
+                    "JOIN hit_apps AS a ON a.name = l.app " +
+                    "JOIN hit_uris AS u ON u.uri = l.uri");
+            jdbcTemplate.execute("DROP TABLE hits_legacy");
+            jdbcTemplate.execute("SELECT setval('hits_id_seq', GREATEST((SELECT MAX(id) FROM hits), 1))");
+        });
+    }
+
+    private void migrateTextColumns() {
+
+        List<String> columns = jdbcTemplate.queryForList("SELECT column_name FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = 'hits' AND column_name = 'app'", String.class);
+        if (columns.isEmpty()) {
+            return;
+        }
+
+        log.info("Перевод app/uri/ip таблицы hits на справочники и INET.");
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS hits_uri_time_stamp_idx");
+            quarantineInvalidIps("hits");
+            fillLookups("hits");
+            jdbcTemplate.execute("ALTER TABLE hits ADD COLUMN app_id INTEGER, ADD COLUMN uri_id INTEGER");
+            jdbcTemplate.execute("UPDATE hits AS h SET app_id = a.id, uri_id = u.id " +
+                    "FROM hit_apps AS a, hit_uris AS u WHERE a.name = h.app AND u.uri = h.uri");
+            jdbcTemplate.execute("ALTER TABLE hits DROP COLUMN app, DROP COLUMN uri");
+            jdbcTemplate.execute("ALTER TABLE hits ALTER COLUMN app_id SET NOT NULL, ALTER COLUMN uri_id SET NOT NULL, " +
+                    "ALTER COLUMN ip TYPE INET USING ip::INET");
+        });
+    }
+
+    private void quarantineInvalidIps(String table) {
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS hits_quarantine AS " +
+                "SELECT id, app, uri, ip, time_stamp FROM " + table + " WITH NO DATA");
+        jdbcTemplate.execute(CREATE_VALID_INET);
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + table + " WHERE NOT pg_temp.hits_valid_inet(ip::TEXT) " +
+                "RETURNING id, app, uri, ip, time_stamp) INSERT INTO hits_quarantine SELECT * FROM moved");
+        jdbcTemplate.execute("DROP FUNCTION pg_temp.hits_valid_inet(TEXT)");
+        if (moved > 0) {
+            log.warn("{} строк hits с ip, который не является IP-адресом, перенесены в hits_quarantine.", moved);
+        }
+    }
+
+    private void fillLookups(String table) {
+
+        jdbcTemplate.execute("INSERT INTO hit_apps (name) SELECT DISTINCT app FROM " + table + " ON CONFLICT (name) DO NOTHING");
+        jdbcTemplate.execute("INSERT INTO hit_uris (uri) SELECT DISTINCT uri FROM " + table + " ON CONFLICT (uri) DO NOTHING");
+    }
+}
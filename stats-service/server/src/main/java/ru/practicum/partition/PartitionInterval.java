@@ -0,0 +1,41 @@
+package ru.practicum.partition;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+public enum PartitionInterval {
+    DAY(ChronoUnit.DAYS, DateTimeFormatter.ofPattern("yyyy_MM_dd")),
+    MONTH(ChronoUnit.MONTHS, DateTimeFormatter.ofPattern("yyyy_MM"));
+
+    private final ChronoUnit unit;
+    private final DateTimeFormatter suffixFormat;
+
+    PartitionInterval(ChronoUnit unit, DateTimeFormatter suffixFormat) {
+        this.unit = unit;
+        this.suffixFormat = suffixFormat;
+    }
+
+    public LocalDate start(LocalDate date) {
+        return this == MONTH ? date.withDayOfMonth(1) : date;
+    }
+
+    public LocalDate next(LocalDate start) {
+        return start.plus(1, unit);
+    }
+
+    public LocalDate minus(LocalDate date, long periods) {
+        return date.minus(periods, unit);
+    }
+
+    public String partitionName(LocalDate start) {
+        return "hits_p" + start.format(suffixFormat);
+    }
+
+    public LocalDate parseStart(String partitionName) {
+        String suffix = partitionName.substring("hits_p".length());
+        return this == MONTH
+                ? LocalDate.parse(suffix + "_01", DAY.suffixFormat)
+                : LocalDate.parse(suffix, suffixFormat);
+    }
+}
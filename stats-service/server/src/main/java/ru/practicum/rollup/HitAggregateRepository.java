@@ -0,0 +1,45 @@
+package ru.practicum.rollup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Признак того, что агрегат (hit_rollups, hit_sketches) учитывает все строки hits.
+ * Экземпляр, запущенный с выключенным агрегатом, сбрасывает признак: его hits в агрегат не попадут.
+ * Пока признак сброшен, /stats считается по hits, а экземпляр с включённым агрегатом пересобирает его при старте.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitAggregateRepository {
+
+    public static final String ROLLUPS = "rollups";
+    public static final String SKETCHES = "sketches";
+
+    private static final String UPSERT = "INSERT INTO hit_aggregates (name, consistent) VALUES (?, ?) " +
+            "ON CONFLICT (name) DO UPDATE SET consistent = EXCLUDED.consistent";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean isConsistent(String name) {
+
+        List<Boolean> consistent = jdbcTemplate.queryForList("SELECT consistent FROM hit_aggregates WHERE name = ?",
+                Boolean.class, name);
+        return !consistent.isEmpty() && Boolean.TRUE.equals(consistent.get(0));
+    }
+
+    public void setConsistent(String name, boolean consistent) {
+
+        jdbcTemplate.update(UPSERT, name, consistent);
+    }
+
+    /**
+     * Блокирует вставку hits до конца транзакции, чтобы пересборка агрегата не разошлась с новыми hits.
+     */
+    public void lockHits() {
+
+        jdbcTemplate.execute("LOCK TABLE hits IN SHARE MODE");
+    }
+}
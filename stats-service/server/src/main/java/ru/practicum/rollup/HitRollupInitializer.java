@@ -0,0 +1,66 @@
+package ru.practicum.rollup;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+
+import static ru.practicum.rollup.HitAggregateRepository.ROLLUPS;
+import static ru.practicum.rollup.HitAggregateRepository.SKETCHES;
+
+/**
+ * С выключенными rollups или скетчами сбрасывает их признак согласованности ещё до приёма hits,
+ * с включёнными - пересобирает hit_rollups и hit_sketches по hits, если признак сброшен (или его ещё нет).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats-server.storage.type", havingValue = "jdbc", matchIfMissing = true)
+@RequiredArgsConstructor
+public class HitRollupInitializer {
+
+    private final HitAggregateRepository hitAggregateRepository;
+    private final HitRollupRepository hitRollupRepository;
+    private final HitSketchRepository hitSketchRepository;
+
+    @Value("${stats-server.rollup.enabled:true}")
+    private boolean rollupEnabled;
+
+    @Value("${stats-server.sketch.enabled:true}")
+    private boolean sketchEnabled;
+
+    @PostConstruct
+    public void markDisabled() {
+
+        if (!rollupEnabled) {
+            hitAggregateRepository.setConsistent(ROLLUPS, false);
+        }
+        if (!sketchEnabled) {
+            hitAggregateRepository.setConsistent(SKETCHES, false);
+        }
+    }
+
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+
+        if (rollupEnabled || sketchEnabled) {
+            hitAggregateRepository.lockHits();
+        }
+        if (rollupEnabled && !hitAggregateRepository.isConsistent(ROLLUPS)) {
+            hitRollupRepository.rebuild();
+            hitAggregateRepository.setConsistent(ROLLUPS, true);
+            log.info("hit_rollups пересобраны по hits.");
+        }
+        if (sketchEnabled && !hitAggregateRepository.isConsistent(SKETCHES)) {
+            hitSketchRepository.rebuild();
+            hitAggregateRepository.setConsistent(SKETCHES, true);
+            log.info("hit_sketches пересобраны по hits.");
+        }
+    }
+}
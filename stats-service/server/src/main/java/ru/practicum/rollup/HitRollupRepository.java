@@ -0,0 +1,116 @@
+package ru.practicum.rollup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Счётчики hits по (app, uri) в бакетах минута/час/день.
+ * Диапазон [start, end] покрывается самыми крупными целыми бакетами,
+ * а хвосты меньше минуты досчитываются по сырой таблице hits.
+ * Пересборка по hits - в HitRollupInitializer, признак согласованности - в HitAggregateRepository.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitRollupRepository {
+
+    private static final String UPSERT = "INSERT INTO hit_rollups (granularity, bucket_start, app, uri, hits) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (granularity, bucket_start, app, uri) DO UPDATE SET hits = hit_rollups.hits + EXCLUDED.hits";
+
+    private static final String BACKFILL = "INSERT INTO hit_rollups (granularity, bucket_start, app, uri, hits) " +
+            "SELECT ?, s.bucket_start, a.name, u.uri, s.hits FROM (" +
+            "SELECT date_trunc(?, time_stamp) AS bucket_start, app_id, uri_id, COUNT(*) AS hits FROM hits GROUP BY 1, 2, 3) AS s " +
+            "JOIN hit_apps AS a ON a.id = s.app_id " +
+            "JOIN hit_uris AS u ON u.id = s.uri_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public void increment(List<HitDto> hits) {
+
+        Map<RollupKey, Long> counters = new TreeMap<>();
+        for (HitDto hit : hits) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(hit.getTimestamp()), hit.getApp(), hit.getUri());
+                counters.merge(key, 1L, Long::sum);
+            }
+        }
+
+        List<Map.Entry<RollupKey, Long>> rows = new ArrayList<>(counters.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.getKey().getGranularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(row.getKey().getBucketStart()));
+            ps.setString(3, row.getKey().getApp());
+            ps.setString(4, row.getKey().getUri());
+            ps.setLong(5, row.getValue());
+        });
+    }
+
+    public void rebuild() {
+
+        jdbcTemplate.update("DELETE FROM hit_rollups");
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            jdbcTemplate.update(BACKFILL, granularity.name(), granularity.getSqlField());
+        }
+    }
+
+    public List<StatsDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+
+        List<String> parts = new ArrayList<>();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        boolean filterUris = uris != null && !uris.isEmpty();
+        if (filterUris) {
+            params.addValue("uris", uris);
+        }
+
+        for (RollupSegment segment : RollupSegment.cover(start, end, RollupGranularity.MINUTE)) {
+            if (segment.isRaw()) {
+                parts.add(rawPart(segment, filterUris, parts.size(), params));
+            } else {
+                parts.add(rollupPart(segment, filterUris, parts.size(), params));
+            }
+        }
+
+        String sql = "SELECT app, uri, SUM(hits) AS hits FROM (" + String.join(" UNION ALL ", parts) + ") AS s " +
+                "GROUP BY app, uri " +
+                "ORDER BY hits DESC";
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) ->
+                new StatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+    }
+
+    private String rollupPart(RollupSegment segment, boolean filterUris, int index, MapSqlParameterSource params) {
+
+        params.addValue("g" + index, segment.getGranularity().name());
+        params.addValue("from" + index, Timestamp.valueOf(segment.getFrom()));
+        params.addValue("to" + index, Timestamp.valueOf(segment.getTo()));
+        return "SELECT app, uri, hits FROM hit_rollups " +
+                "WHERE granularity = :g" + index + " " +
+                "AND bucket_start >= :from" + index + " AND bucket_start < :to" + index +
+                (filterUris ? " AND uri IN (:uris)" : "");
+    }
+
+    private String rawPart(RollupSegment segment, boolean filterUris, int index, MapSqlParameterSource params) {
+
+        params.addValue("from" + index, Timestamp.valueOf(segment.getFrom()));
+        params.addValue("to" + index, Timestamp.valueOf(segment.getTo()));
+        return "SELECT a.name AS app, u.uri AS uri, s.hits FROM (" +
+                "SELECT app_id, uri_id, COUNT(*) AS hits FROM hits " +
+                "WHERE time_stamp >= :from" + index + " AND time_stamp " + (segment.isInclusiveTo() ? "<=" : "<") + " :to" + index +
+                (filterUris ? " AND uri_id IN (SELECT id FROM hit_uris WHERE uri IN (:uris))" : "") +
+                " GROUP BY app_id, uri_id) AS s " +
+                "JOIN hit_apps AS a ON a.id = s.app_id " +
+                "JOIN hit_uris AS u ON u.id = s.uri_id";
+    }
+}
@@ -0,0 +1,230 @@
+package ru.practicum.rollup;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * HyperLogLog-скетчи уникальных ip по (app, uri) в часовых и дневных бакетах.
+ * Хвосты диапазона короче часа досчитываются по сырой таблице hits.
+ * Скетчи пачки сливаются с сохранёнными тремя запросами на MERGE_CHUNK ключей: вставка новых,
+ * SELECT ... FOR UPDATE уже существующих и UPDATE объединённых, ключи передаются массивами.
+ * Пересборка идёт по дням: hits дня читаются курсором по REBUILD_FETCH_SIZE строк, и его скетчи
+ * записываются до чтения следующего дня, так что в памяти не больше скетчей одного дня.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitSketchRepository {
+
+    private static final RollupGranularity[] GRANULARITIES = {RollupGranularity.DAY, RollupGranularity.HOUR};
+
+    private static final int MERGE_CHUNK = 1000;
+    private static final int REBUILD_FETCH_SIZE = 10000;
+
+    private static final String REBUILD_DAY = "SELECT a.name AS app, u.uri AS uri, host(h.ip) AS ip, h.time_stamp " +
+            "FROM hits AS h " +
+            "JOIN hit_apps AS a ON a.id = h.app_id " +
+            "JOIN hit_uris AS u ON u.id = h.uri_id " +
+            "WHERE h.time_stamp >= ? AND h.time_stamp < ?";
+
+    private static final String KEYS = "unnest(?::VARCHAR[], ?::TIMESTAMP[], ?::VARCHAR[], ?::VARCHAR[]";
+
+    private static final String INSERT = "INSERT INTO hit_sketches (granularity, bucket_start, app, uri, sketch) " +
+            "SELECT * FROM " + KEYS + ", ?::BYTEA[]) " +
+            "ON CONFLICT (granularity, bucket_start, app, uri) DO NOTHING " +
+            "RETURNING granularity, bucket_start, app, uri";
+
+    private static final String SELECT_FOR_UPDATE = "SELECT s.granularity, s.bucket_start, s.app, s.uri, s.sketch " +
+            "FROM hit_sketches AS s " +
+            "JOIN " + KEYS + ") AS k (granularity, bucket_start, app, uri) " +
+            "ON s.granularity = k.granularity AND s.bucket_start = k.bucket_start AND s.app = k.app AND s.uri = k.uri " +
+            "ORDER BY s.granularity, s.bucket_start, s.app, s.uri " +
+            "FOR UPDATE OF s";
+
+    private static final String UPDATE = "UPDATE hit_sketches AS s SET sketch = k.sketch " +
+            "FROM " + KEYS + ", ?::BYTEA[]) AS k (granularity, bucket_start, app, uri, sketch) " +
+            "WHERE s.granularity = k.granularity AND s.bucket_start = k.bucket_start AND s.app = k.app AND s.uri = k.uri";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public void add(List<HitDto> hits) {
+
+        Map<RollupKey, HyperLogLog> sketches = new TreeMap<>();
+        for (HitDto hit : hits) {
+            for (RollupGranularity granularity : GRANULARITIES) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(hit.getTimestamp()), hit.getApp(), hit.getUri());
+                sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(hit.getIp());
+            }
+        }
+        merge(sketches);
+    }
+
+    /**
+     * Курсор с fetch size работает только вне autocommit, поэтому пересборка идёт в транзакции.
+     */
+    @Transactional
+    public void rebuild() {
+
+        jdbcTemplate.update("DELETE FROM hit_sketches");
+        Map<String, Object> range = jdbcTemplate.queryForMap("SELECT min(time_stamp) AS first, max(time_stamp) AS last FROM hits");
+        if (range.get("first") == null) {
+            return;
+        }
+
+        LocalDateTime last = ((Timestamp) range.get("last")).toLocalDateTime();
+        for (LocalDateTime day = RollupGranularity.DAY.floor(((Timestamp) range.get("first")).toLocalDateTime());
+             !day.isAfter(last); day = day.plusDays(1)) {
+            merge(readDay(day));
+        }
+    }
+
+    public List<StatsDto> findUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+
+        boolean filterUris = uris != null && !uris.isEmpty();
+        Map<String, Map<String, HyperLogLog>> merged = new HashMap<>();
+
+        for (RollupSegment segment : RollupSegment.cover(start, end, RollupGranularity.HOUR)) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("from", Timestamp.valueOf(segment.getFrom()))
+                    .addValue("to", Timestamp.valueOf(segment.getTo()))
+                    .addValue("uris", uris);
+
+            if (segment.isRaw()) {
+                String sql = "SELECT a.name AS app, u.uri AS uri, host(s.ip) AS ip FROM (" +
+                        "SELECT DISTINCT app_id, uri_id, ip FROM hits " +
+                        "WHERE time_stamp >= :from AND time_stamp " + (segment.isInclusiveTo() ? "<=" : "<") + " :to" +
+                        (filterUris ? " AND uri_id IN (SELECT id FROM hit_uris WHERE uri IN (:uris))" : "") + ") AS s " +
+                        "JOIN hit_apps AS a ON a.id = s.app_id " +
+                        "JOIN hit_uris AS u ON u.id = s.uri_id";
+                namedParameterJdbcTemplate.query(sql, params, rs -> {
+                    sketchFor(merged, rs.getString("app"), rs.getString("uri")).add(rs.getString("ip"));
+                });
+            } else {
+                params.addValue("g", segment.getGranularity().name());
+                String sql = "SELECT app, uri, sketch FROM hit_sketches " +
+                        "WHERE granularity = :g AND bucket_start >= :from AND bucket_start < :to" +
+                        (filterUris ? " AND uri IN (:uris)" : "");
+                namedParameterJdbcTemplate.query(sql, params, rs -> {
+                    sketchFor(merged, rs.getString("app"), rs.getString("uri")).merge(HyperLogLog.fromBytes(rs.getBytes("sketch")));
+                });
+            }
+        }
+
+        List<StatsDto> result = new ArrayList<>();
+        merged.forEach((app, byUri) -> byUri.forEach((uri, sketch) -> result.add(new StatsDto(app, uri, sketch.estimate()))));
+        result.sort(Comparator.comparing(StatsDto::getHits).reversed());
+        return result;
+    }
+
+    private Map<RollupKey, HyperLogLog> readDay(LocalDateTime day) {
+
+        Map<RollupKey, HyperLogLog> sketches = new TreeMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(REBUILD_DAY);
+            ps.setFetchSize(REBUILD_FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.valueOf(day));
+            ps.setTimestamp(2, Timestamp.valueOf(day.plusDays(1)));
+            return ps;
+        }, rs -> {
+            LocalDateTime timestamp = rs.getTimestamp("time_stamp").toLocalDateTime();
+            for (RollupGranularity granularity : GRANULARITIES) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(timestamp), rs.getString("app"), rs.getString("uri"));
+                sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(rs.getString("ip"));
+            }
+        });
+        return sketches;
+    }
+
+    private void merge(Map<RollupKey, HyperLogLog> sketches) {
+
+        List<RollupKey> keys = new ArrayList<>(sketches.keySet());
+        for (int from = 0; from < keys.size(); from += MERGE_CHUNK) {
+            mergeChunk(keys.subList(from, Math.min(from + MERGE_CHUNK, keys.size())), sketches);
+        }
+    }
+
+    private void mergeChunk(List<RollupKey> keys, Map<RollupKey, HyperLogLog> sketches) {
+
+        Set<RollupKey> inserted = new HashSet<>(jdbcTemplate.query(INSERT,
+                ps -> setKeys(ps, keys, sketches), (rs, rowNum) -> key(rs)));
+        List<RollupKey> existing = new ArrayList<>();
+        for (RollupKey key : keys) {
+            if (!inserted.contains(key)) {
+                existing.add(key);
+            }
+        }
+        if (existing.isEmpty()) {
+            return;
+        }
+
+        Map<RollupKey, HyperLogLog> merged = new TreeMap<>();
+        jdbcTemplate.query(SELECT_FOR_UPDATE, ps -> setKeys(ps, existing, null), rs -> {
+            RollupKey key = key(rs);
+            HyperLogLog sketch = sketches.get(key);
+            sketch.merge(HyperLogLog.fromBytes(rs.getBytes("sketch")));
+            merged.put(key, sketch);
+        });
+        List<RollupKey> updated = new ArrayList<>(merged.keySet());
+        jdbcTemplate.update(UPDATE, ps -> setKeys(ps, updated, merged));
+    }
+
+    private static void setKeys(PreparedStatement ps, List<RollupKey> keys, Map<RollupKey, HyperLogLog> sketches) throws SQLException {
+
+        int size = keys.size();
+        String[] granularities = new String[size];
+        Timestamp[] bucketStarts = new Timestamp[size];
+        String[] apps = new String[size];
+        String[] uris = new String[size];
+        for (int i = 0; i < size; i++) {
+            RollupKey key = keys.get(i);
+            granularities[i] = key.getGranularity().name();
+            bucketStarts[i] = Timestamp.valueOf(key.getBucketStart());
+            apps[i] = key.getApp();
+            uris[i] = key.getUri();
+        }
+
+        Connection connection = ps.getConnection();
+        ps.setArray(1, connection.createArrayOf("varchar", granularities));
+        ps.setArray(2, connection.createArrayOf("timestamp", bucketStarts));
+        ps.setArray(3, connection.createArrayOf("varchar", apps));
+        ps.setArray(4, connection.createArrayOf("varchar", uris));
+        if (sketches != null) {
+            byte[][] bytes = new byte[size][];
+            for (int i = 0; i < size; i++) {
+                bytes[i] = sketches.get(keys.get(i)).toBytes();
+            }
+            ps.setArray(5, connection.createArrayOf("bytea", bytes));
+        }
+    }
+
+    private static RollupKey key(ResultSet rs) throws SQLException {
+
+        return new RollupKey(RollupGranularity.valueOf(rs.getString("granularity")),
+                rs.getTimestamp("bucket_start").toLocalDateTime(), rs.getString("app"), rs.getString("uri"));
+    }
+
+    private static HyperLogLog sketchFor(Map<String, Map<String, HyperLogLog>> merged, String app, String uri) {
+        return merged.computeIfAbsent(app, a -> new HashMap<>()).computeIfAbsent(uri, u -> new HyperLogLog());
+    }
+}
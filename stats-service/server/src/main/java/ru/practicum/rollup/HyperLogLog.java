@@ -0,0 +1,121 @@
+package ru.practicum.rollup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog с 2^12 регистрами: стандартная ошибка оценки около 1.6%.
+ * Скетчи объединяются поэлементным максимумом регистров, поэтому
+ * бакеты за любой диапазон можно склеить в памяти.
+ */
+public class HyperLogLog {
+
+    private static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public void add(String value) {
+
+        long hash = hash(value);
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] < other.registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+
+        if (nonZero * 3 >= REGISTERS) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + REGISTERS);
+            buffer.put(DENSE).put(registers);
+            return buffer.array();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + nonZero * 3);
+        buffer.put(SPARSE);
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                buffer.putShort((short) i).put(registers[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte[] registers = new byte[REGISTERS];
+        if (buffer.get() == DENSE) {
+            buffer.get(registers);
+        } else {
+            while (buffer.hasRemaining()) {
+                int index = buffer.getShort() & 0xFFFF;
+                registers[index] = buffer.get();
+            }
+        }
+        return new HyperLogLog(registers);
+    }
+
+    private static long hash(String value) {
+
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,39 @@
+package ru.practicum.rollup;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+    DAY(ChronoUnit.DAYS, "day"),
+    HOUR(ChronoUnit.HOURS, "hour"),
+    MINUTE(ChronoUnit.MINUTES, "minute");
+
+    private final ChronoUnit unit;
+    private final String sqlField;
+
+    RollupGranularity(ChronoUnit unit, String sqlField) {
+        this.unit = unit;
+        this.sqlField = sqlField;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    public String getSqlField() {
+        return sqlField;
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+
+    public RollupGranularity finer() {
+        return ordinal() + 1 < values().length ? values()[ordinal() + 1] : null;
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.rollup;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+@Value
+public class RollupKey implements Comparable<RollupKey> {
+
+    private static final Comparator<RollupKey> ORDER = Comparator.comparing(RollupKey::getGranularity)
+            .thenComparing(RollupKey::getBucketStart)
+            .thenComparing(RollupKey::getApp)
+            .thenComparing(RollupKey::getUri);
+
+    RollupGranularity granularity;
+    LocalDateTime bucketStart;
+    String app;
+    String uri;
+
+    @Override
+    public int compareTo(RollupKey other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.rollup;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Часть диапазона [start, end]: либо целые бакеты одной гранулярности,
+ * либо хвост по сырой таблице hits (granularity == null).
+ */
+@Value
+public class RollupSegment {
+
+    RollupGranularity granularity;
+    LocalDateTime from;
+    LocalDateTime to;
+    boolean inclusiveTo;
+
+    public boolean isRaw() {
+        return granularity == null;
+    }
+
+    public static List<RollupSegment> cover(LocalDateTime start, LocalDateTime end, RollupGranularity finest) {
+
+        List<RollupSegment> segments = new ArrayList<>();
+        cover(start, end, RollupGranularity.DAY, finest, end, segments);
+        return segments;
+    }
+
+    private static void cover(LocalDateTime from, LocalDateTime to, RollupGranularity granularity,
+                              RollupGranularity finest, LocalDateTime end, List<RollupSegment> segments) {
+
+        if (!from.isBefore(to) && !to.equals(end)) {
+            return;
+        }
+        if (granularity == null) {
+            segments.add(new RollupSegment(null, from, to, to.equals(end)));
+            return;
+        }
+
+        RollupGranularity finer = granularity == finest ? null : granularity.finer();
+        LocalDateTime bucketsFrom = granularity.ceil(from);
+        LocalDateTime bucketsTo = granularity.floor(to);
+        if (!bucketsFrom.isBefore(bucketsTo)) {
+            cover(from, to, finer, finest, end, segments);
+            return;
+        }
+
+        cover(from, bucketsFrom, finer, finest, end, segments);
+        segments.add(new RollupSegment(granularity, bucketsFrom, bucketsTo, false));
+        cover(bucketsTo, to, finer, finest, end, segments);
+    }
+}
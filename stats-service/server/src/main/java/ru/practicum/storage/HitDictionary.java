@@ -0,0 +1,124 @@
+package ru.practicum.storage;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словарь строк сегментного хранилища: строка получает плотный номер с 0.
+ * Файл - журнал записей (длина, UTF-8). Новые строки сбрасываются на диск одним sync перед commit пачки,
+ * поэтому номер попадает в сегмент на диске только после своей строки. Недописанный хвост отбрасывается при открытии.
+ */
+final class HitDictionary implements Closeable {
+
+    private final FileChannel channel;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[256];
+    private volatile boolean dirty;
+    private int size;
+
+    private HitDictionary(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    static HitDictionary open(Path path) throws IOException {
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        HitDictionary dictionary = new HitDictionary(channel);
+
+        long valid = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+        try {
+            while (true) {
+                int length = in.readInt();
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+                valid += Integer.BYTES + length;
+            }
+        } catch (EOFException e) {
+            channel.truncate(valid);
+            channel.position(valid);
+        }
+        return dictionary;
+    }
+
+    int find(String value) {
+
+        return ids.getOrDefault(value, -1);
+    }
+
+    int intern(String value) {
+
+        Integer id = ids.get(value);
+        return id != null ? id : append(value);
+    }
+
+    String value(int id) {
+
+        return values[id];
+    }
+
+    void sync() {
+
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            dirty = true;
+            throw new UncheckedIOException("Не удалось сбросить словарь hits на диск", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        channel.force(false);
+        channel.close();
+    }
+
+    private synchronized int append(String value) {
+
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes).flip();
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            dirty = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать словарь hits", e);
+        }
+        return add(value);
+    }
+
+    private int add(String value) {
+
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        ids.put(value, size);
+        return size++;
+    }
+}
@@ -0,0 +1,190 @@
+package ru.practicum.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Сегмент hits фиксированной ёмкости в отображённом в память файле.
+ * Колонки лежат подряд: app (int), uri (int), ip (long), время (int, секунды от base).
+ * Строки только дописываются: append кладёт их в колонки после count, а commit сначала сбрасывает колонки на диск,
+ * потом пишет count в заголовок и сбрасывает его. Поэтому и в памяти, и после сбоя ОС читатель видит
+ * лишь полностью записанные строки.
+ */
+final class HitSegment implements Closeable {
+
+    private static final int MAGIC = 0x48495453;
+    private static final int HEADER_SIZE = 64;
+    private static final int COUNT_OFFSET = 8;
+    private static final int MIN_OFFSET = 24;
+    private static final int MAX_OFFSET = 32;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long base;
+    private final IntBuffer apps;
+    private final IntBuffer uris;
+    private final LongBuffer ips;
+    private final IntBuffer seconds;
+    private volatile int count;
+    private int pending;
+    private volatile long minSecond;
+    private volatile long maxSecond;
+
+    private HitSegment(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = buffer.getInt(4);
+        this.base = buffer.getLong(16);
+        this.count = buffer.getInt(COUNT_OFFSET);
+        this.pending = count;
+        this.minSecond = buffer.getLong(MIN_OFFSET);
+        this.maxSecond = buffer.getLong(MAX_OFFSET);
+
+        int offset = HEADER_SIZE;
+        this.apps = column(buffer, offset, capacity * Integer.BYTES).asIntBuffer();
+        offset += capacity * Integer.BYTES;
+        this.uris = column(buffer, offset, capacity * Integer.BYTES).asIntBuffer();
+        offset += capacity * Integer.BYTES;
+        this.ips = column(buffer, offset, capacity * Long.BYTES).asLongBuffer();
+        offset += capacity * Long.BYTES;
+        this.seconds = column(buffer, offset, capacity * Integer.BYTES).asIntBuffer();
+    }
+
+    static HitSegment create(Path path, int capacity, long base) throws IOException {
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, capacity);
+        buffer.putInt(COUNT_OFFSET, 0);
+        buffer.putLong(16, base);
+        buffer.putLong(MIN_OFFSET, Long.MAX_VALUE);
+        buffer.putLong(MAX_OFFSET, Long.MIN_VALUE);
+        return new HitSegment(channel, buffer);
+    }
+
+    static HitSegment open(Path path) throws IOException {
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC || channel.size() != fileSize(buffer.getInt(4))) {
+            channel.close();
+            throw new IllegalStateException("Повреждён сегмент hits: " + path);
+        }
+        return new HitSegment(channel, buffer);
+    }
+
+    /**
+     * Вызывается только писателем хранилища; строка невидима до commit. false - сегмент заполнен
+     * или время не укладывается в int-смещение от base.
+     */
+    boolean append(int app, int uri, long ip, long second) {
+
+        long delta = second - base;
+        if (pending == capacity || delta < Integer.MIN_VALUE || delta > Integer.MAX_VALUE) {
+            return false;
+        }
+
+        int row = pending;
+        apps.put(row, app);
+        uris.put(row, uri);
+        ips.put(row, ip);
+        seconds.put(row, (int) delta);
+
+        if (second < minSecond) {
+            minSecond = second;
+            buffer.putLong(MIN_OFFSET, second);
+        }
+        if (second > maxSecond) {
+            maxSecond = second;
+            buffer.putLong(MAX_OFFSET, second);
+        }
+        pending = row + 1;
+        return true;
+    }
+
+    /**
+     * Делает видимыми и долговечными строки, добавленные после прошлого commit.
+     */
+    void commit() {
+
+        if (pending == count) {
+            return;
+        }
+        buffer.force();
+        buffer.putInt(COUNT_OFFSET, pending);
+        buffer.force();
+        count = pending;
+    }
+
+    /**
+     * Откат пачки: строки после rows становятся невидимы, min/max времени остаются шире нужного.
+     */
+    void truncate(int rows) {
+
+        if (buffer.getInt(COUNT_OFFSET) != rows) {
+            buffer.putInt(COUNT_OFFSET, rows);
+            buffer.force();
+        }
+        count = rows;
+        pending = rows;
+    }
+
+    int size() {
+        return count;
+    }
+
+    long getBase() {
+        return base;
+    }
+
+    boolean overlaps(long from, long to) {
+        return count > 0 && minSecond <= to && maxSecond >= from;
+    }
+
+    int app(int row) {
+        return apps.get(row);
+    }
+
+    int uri(int row) {
+        return uris.get(row);
+    }
+
+    long ip(int row) {
+        return ips.get(row);
+    }
+
+    int second(int row) {
+        return seconds.get(row);
+    }
+
+    void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        flush();
+        channel.close();
+    }
+
+    private static long fileSize(int capacity) {
+        return HEADER_SIZE + (long) capacity * (Integer.BYTES * 3 + Long.BYTES);
+    }
+
+    private static ByteBuffer column(ByteBuffer buffer, int offset, int length) {
+
+        ByteBuffer column = buffer.duplicate();
+        column.position(offset).limit(offset + length);
+        return column.slice();
+    }
+}
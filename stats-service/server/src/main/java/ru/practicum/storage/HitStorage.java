@@ -0,0 +1,21 @@
+package ru.practicum.storage;
+
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище hits. Реализация выбирается свойством stats-server.storage.type:
+ * jdbc (PostgreSQL, по умолчанию) или segment (встроенные колоночные сегменты).
+ */
+public interface HitStorage {
+
+    void save(HitDto hitDto);
+
+    int saveAll(Stream<HitDto> hits);
+
+    List<StatsDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, boolean approximate);
+}
@@ -0,0 +1,132 @@
+package ru.practicum.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.HitBatchRepository;
+import ru.practicum.HitRepository;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.exception.StatsValidationException;
+import ru.practicum.rollup.HitAggregateRepository;
+import ru.practicum.rollup.HitRollupRepository;
+import ru.practicum.rollup.HitSketchRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Хранение hits в PostgreSQL: секционированная таблица hits (app/uri - id из справочников, ip - INET),
+ * счётчики hit_rollups и скетчи hit_sketches.
+ */
+@Component
+@ConditionalOnProperty(name = "stats-server.storage.type", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcHitStorage implements HitStorage {
+
+    private final HitRepository hitRepository;
+    private final HitBatchRepository hitBatchRepository;
+    private final HitRollupRepository hitRollupRepository;
+    private final HitAggregateRepository hitAggregateRepository;
+    private final HitSketchRepository hitSketchRepository;
+    private final int batchChunkSize;
+    private final boolean rollupEnabled;
+    private final boolean sketchEnabled;
+
+    public JdbcHitStorage(HitRepository hitRepository,
+                          HitBatchRepository hitBatchRepository,
+                          HitRollupRepository hitRollupRepository,
+                          HitAggregateRepository hitAggregateRepository,
+                          HitSketchRepository hitSketchRepository,
+                          @Value("${stats-server.hits.batch-chunk-size:1000}") int batchChunkSize,
+                          @Value("${stats-server.rollup.enabled:true}") boolean rollupEnabled,
+                          @Value("${stats-server.sketch.enabled:true}") boolean sketchEnabled) {
+        this.hitRepository = hitRepository;
+        this.hitBatchRepository = hitBatchRepository;
+        this.hitRollupRepository = hitRollupRepository;
+        this.hitAggregateRepository = hitAggregateRepository;
+        this.hitSketchRepository = hitSketchRepository;
+        this.batchChunkSize = batchChunkSize;
+        this.rollupEnabled = rollupEnabled;
+        this.sketchEnabled = sketchEnabled;
+    }
+
+    @Transactional
+    @Override
+    public void save(HitDto hitDto) {
+
+        saveChunk(List.of(hitDto));
+    }
+
+    @Transactional
+    @Override
+    public int saveAll(Stream<HitDto> hits) {
+
+        int count = 0;
+        List<HitDto> chunk = new ArrayList<>(batchChunkSize);
+        Iterator<HitDto> iterator = hits.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == batchChunkSize) {
+                count += saveChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            count += saveChunk(chunk);
+        }
+        return count;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<StatsDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, boolean approximate) {
+
+        if (unique && approximate) {
+            if (!sketchEnabled) {
+                throw new StatsValidationException("Приближённый подсчёт уникальных ip отключён.");
+            }
+            if (hitAggregateRepository.isConsistent(HitAggregateRepository.SKETCHES)) {
+                return hitSketchRepository.findUniqueStats(start, end, uris);
+            }
+        }
+
+        if (!unique && rollupEnabled && hitAggregateRepository.isConsistent(HitAggregateRepository.ROLLUPS)) {
+            return hitRollupRepository.findStats(start, end, uris);
+        }
+
+        if (uris == null || uris.isEmpty()) {
+            if (unique) {
+                return hitRepository.findAllStatsByDistinctUniqueIp(start, end);
+            } else {
+                return hitRepository.findAllStatsWithoutDistinctIp(start, end);
+            }
+        } else {
+            if (unique) {
+                return hitRepository.findStatsByUrisByDistinctUniqueIp(start, end, uris);
+            } else {
+                return hitRepository.findStatsByUrisWithoutDistinctIp(start, end, uris);
+            }
+        }
+    }
+
+    private int saveChunk(List<HitDto> chunk) {
+
+        hitBatchRepository.saveAll(chunk);
+        updateAggregates(chunk);
+        return chunk.size();
+    }
+
+    private void updateAggregates(List<HitDto> hits) {
+
+        if (rollupEnabled) {
+            hitRollupRepository.increment(hits);
+        }
+        if (sketchEnabled) {
+            hitSketchRepository.add(hits);
+        }
+    }
+}
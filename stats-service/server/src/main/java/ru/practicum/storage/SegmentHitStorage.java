@@ -0,0 +1,330 @@
+package ru.practicum.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.exception.StatsValidationException;
+import ru.practicum.rollup.HyperLogLog;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Встроенное хранилище hits без БД: append-only сегменты {@link HitSegment} в каталоге dir.
+ * app и uri хранятся номерами из словарей, IPv4 - как число, прочие адреса - номером из словаря ip
+ * со старшим битом 1L << 32. Время хранится с точностью до секунды.
+ * Агрегация читает только нужные колонки и пропускает сегменты вне диапазона по min/max времени,
+ * приближённый подсчёт уникальных ip - тем же HyperLogLog, что и скетчи jdbc-хранилища.
+ * Пачка сначала кодируется в памяти (24 байта на hit) и дописывается целиком под блокировкой писателя;
+ * если поток пачки прервался или дозапись упала, в сегментах не остаётся ни одного hit из неё.
+ * Ответ на запись уходит после commit: словари и колонки уже на диске, поэтому сбой не теряет принятые hits.
+ * Пачку, захватившую несколько сегментов, сбой ОС посреди commit может оставить на диске частично;
+ * такая пачка не была подтверждена.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats-server.storage.type", havingValue = "segment")
+public class SegmentHitStorage implements HitStorage {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".col";
+    private static final int MAX_SEGMENT_ROWS = 100_000_000;
+    private static final long NON_IPV4_FLAG = 1L << 32;
+
+    private final Path dir;
+    private final int segmentRows;
+    private final HitDictionary apps;
+    private final HitDictionary uris;
+    private final HitDictionary ips;
+    private final boolean sketchEnabled;
+    private final List<HitSegment> segments = new CopyOnWriteArrayList<>();
+    private volatile HitSegment active;
+
+    public SegmentHitStorage(@Value("${stats-server.storage.segment.dir:data/hits}") String dir,
+                             @Value("${stats-server.storage.segment.rows:1048576}") int segmentRows,
+                             @Value("${stats-server.sketch.enabled:true}") boolean sketchEnabled) throws IOException {
+        if (segmentRows <= 0 || segmentRows > MAX_SEGMENT_ROWS) {
+            throw new IllegalArgumentException("stats-server.storage.segment.rows должен быть от 1 до " + MAX_SEGMENT_ROWS);
+        }
+        this.dir = Paths.get(dir);
+        this.segmentRows = segmentRows;
+        this.sketchEnabled = sketchEnabled;
+        Files.createDirectories(this.dir);
+
+        this.apps = HitDictionary.open(this.dir.resolve("apps.dict"));
+        this.uris = HitDictionary.open(this.dir.resolve("uris.dict"));
+        this.ips = HitDictionary.open(this.dir.resolve("ips.dict"));
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.naturalOrder());
+        for (Path file : files) {
+            segments.add(HitSegment.open(file));
+        }
+        if (!segments.isEmpty()) {
+            active = segments.get(segments.size() - 1);
+        }
+        log.info("Сегментное хранилище hits: {}, сегментов {}.", this.dir.toAbsolutePath(), segments.size());
+    }
+
+    @Override
+    public void save(HitDto hitDto) {
+
+        saveAll(Stream.of(hitDto));
+    }
+
+    @Override
+    public int saveAll(Stream<HitDto> hits) {
+
+        EncodedHits batch = new EncodedHits();
+        hits.forEach(hit -> batch.add(apps.intern(hit.getApp()), uris.intern(hit.getUri()), encodeIp(hit.getIp()),
+                hit.getTimestamp().toEpochSecond(ZoneOffset.UTC)));
+        append(batch);
+        return batch.size;
+    }
+
+    @Override
+    public List<StatsDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uriFilter, boolean unique, boolean approximate) {
+
+        boolean sketch = unique && approximate;
+        if (sketch && !sketchEnabled) {
+            throw new StatsValidationException("Приближённый подсчёт уникальных ip отключён.");
+        }
+        long from = start == null ? Long.MIN_VALUE : start.toEpochSecond(ZoneOffset.UTC);
+        long to = end == null ? Long.MAX_VALUE : end.toEpochSecond(ZoneOffset.UTC);
+
+        BitSet uriIds = null;
+        if (uriFilter != null && !uriFilter.isEmpty()) {
+            uriIds = new BitSet();
+            for (String uri : uriFilter) {
+                int id = uris.find(uri);
+                if (id >= 0) {
+                    uriIds.set(id);
+                }
+            }
+            if (uriIds.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        Map<Long, long[]> hits = new HashMap<>();
+        Map<Long, Set<Long>> uniqueIps = new HashMap<>();
+        Map<Long, HyperLogLog> sketches = new HashMap<>();
+        for (HitSegment segment : segments) {
+            int size = segment.size();
+            if (!segment.overlaps(from, to)) {
+                continue;
+            }
+            long lower = Math.max(from - segment.getBase(), Integer.MIN_VALUE);
+            long upper = Math.min(to - segment.getBase(), Integer.MAX_VALUE);
+
+            for (int row = 0; row < size; row++) {
+                int second = segment.second(row);
+                if (second < lower || second > upper) {
+                    continue;
+                }
+                int uri = segment.uri(row);
+                if (uriIds != null && !uriIds.get(uri)) {
+                    continue;
+                }
+                long key = (long) segment.app(row) << 32 | uri;
+                if (sketch) {
+                    sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(decodeIp(segment.ip(row)));
+                } else if (unique) {
+                    uniqueIps.computeIfAbsent(key, k -> new HashSet<>()).add(segment.ip(row));
+                } else {
+                    hits.computeIfAbsent(key, k -> new long[1])[0]++;
+                }
+            }
+        }
+
+        List<StatsDto> result = new ArrayList<>();
+        if (sketch) {
+            sketches.forEach((key, hll) -> result.add(toStats(key, hll.estimate())));
+        } else if (unique) {
+            uniqueIps.forEach((key, ipSet) -> result.add(toStats(key, ipSet.size())));
+        } else {
+            hits.forEach((key, counter) -> result.add(toStats(key, counter[0])));
+        }
+        result.sort(Comparator.comparing(StatsDto::getHits).reversed());
+        return result;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+
+        for (HitSegment segment : segments) {
+            segment.close();
+        }
+        apps.close();
+        uris.close();
+        ips.close();
+    }
+
+    private synchronized void append(EncodedHits batch) {
+
+        HitSegment previous = active;
+        int previousSize = previous == null ? 0 : previous.size();
+        int previousSegments = segments.size();
+        try {
+            for (int i = 0; i < batch.size; i++) {
+                if (active == null || !active.append(batch.apps[i], batch.uris[i], batch.ips[i], batch.seconds[i])) {
+                    active = nextSegment(batch.seconds[i]);
+                    active.append(batch.apps[i], batch.uris[i], batch.ips[i], batch.seconds[i]);
+                }
+            }
+
+            apps.sync();
+            uris.sync();
+            ips.sync();
+            for (int i = Math.max(previousSegments - 1, 0); i < segments.size(); i++) {
+                segments.get(i).commit();
+            }
+        } catch (RuntimeException e) {
+            rollback(previous, previousSize, previousSegments);
+            throw e;
+        }
+    }
+
+    private void rollback(HitSegment previous, int previousSize, int previousSegments) {
+
+        while (segments.size() > previousSegments) {
+            HitSegment segment = segments.remove(segments.size() - 1);
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.warn("Не удалось закрыть сегмент hits при откате пачки: {}", e.getMessage());
+            }
+        }
+        deleteSegmentFiles(previousSegments);
+        if (previous != null) {
+            previous.truncate(previousSize);
+        }
+        active = previous;
+    }
+
+    private void deleteSegmentFiles(int from) {
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                String number = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+                if (Long.parseLong(number) >= from) {
+                    Files.delete(file);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось удалить сегменты hits при откате пачки: {}", e.getMessage());
+        }
+    }
+
+    private HitSegment nextSegment(long base) {
+
+        Path file = dir.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segments.size(), SEGMENT_SUFFIX));
+        try {
+            HitSegment segment = HitSegment.create(file, segmentRows, base);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент hits " + file, e);
+        }
+    }
+
+    private long encodeIp(String ip) {
+
+        long ipv4 = parseIpv4(ip);
+        return ipv4 >= 0 ? ipv4 : NON_IPV4_FLAG | ips.intern(ip);
+    }
+
+    private String decodeIp(long ip) {
+
+        if ((ip & NON_IPV4_FLAG) != 0) {
+            return ips.value((int) ip);
+        }
+        return (ip >>> 24 & 0xFF) + "." + (ip >>> 16 & 0xFF) + "." + (ip >>> 8 & 0xFF) + "." + (ip & 0xFF);
+    }
+
+    private StatsDto toStats(long key, long hits) {
+
+        return new StatsDto(apps.value((int) (key >>> 32)), uris.value((int) key), hits);
+    }
+
+    private static long parseIpv4(String ip) {
+
+        long value = 0;
+        int octets = 0;
+        int octet = -1;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (octet == 0) {
+                    return -1;
+                }
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && octets < 3) {
+                value = value << 8 | octet;
+                octets++;
+                octet = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (octet < 0 || octets != 3) {
+            return -1;
+        }
+        return value << 8 | octet;
+    }
+
+    /**
+     * Пачка, закодированная до записи: колонки как в сегменте, время - секунды от эпохи.
+     */
+    private static final class EncodedHits {
+
+        private int[] apps = new int[64];
+        private int[] uris = new int[64];
+        private long[] ips = new long[64];
+        private long[] seconds = new long[64];
+        private int size;
+
+        void add(int app, int uri, long ip, long second) {
+
+            if (size == apps.length) {
+                apps = Arrays.copyOf(apps, size * 2);
+                uris = Arrays.copyOf(uris, size * 2);
+                ips = Arrays.copyOf(ips, size * 2);
+                seconds = Arrays.copyOf(seconds, size * 2);
+            }
+            apps[size] = app;
+            uris[size] = uri;
+            ips[size] = ip;
+            seconds[size] = second;
+            size++;
+        }
+    }
+}
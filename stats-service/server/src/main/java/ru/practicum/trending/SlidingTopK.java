@@ -0,0 +1,203 @@
+package ru.practicum.trending;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Скользящее окно из buckets корзин Count-Min по bucketMillis каждая плюс их сумма total.
+ * Счётчики - ячейки AtomicLongArray, оценка ключа - минимум по строкам total.
+ * Записи не берут блокировок: запись отмечается в своей полосе inFlight (по id потока, полосы разнесены
+ * по строкам кэша) и проверяет флаг rotating. Сдвиг окна поднимает rotating, дожидается нуля во всех полосах
+ * и только тогда обнуляет вышедшие корзины и вычитает их из total. Поэтому total всегда равен сумме живых корзин,
+ * и hit не попадает в корзину, уже отданную новому интервалу. Цена - сдвиг (раз в bucketMillis) ждёт
+ * начатые записи, а записи, пришедшие во время сдвига, ждут его конца.
+ * Кандидаты в top-K хранятся без счётчиков: ключ попадает в набор, если его оценка выше floor,
+ * а при переполнении вдвое набор пересчитывается по total и урезается до capacity ненулевых оценок.
+ */
+final class SlidingTopK {
+
+    private static final int DEPTH = 4;
+    private static final int STRIPE_PADDING = 8;
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) * 2;
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final int width;
+    private final int capacity;
+    private final AtomicLongArray[] ring;
+    private final AtomicLongArray total;
+    private final Set<TrendingKey> candidates = ConcurrentHashMap.newKeySet();
+    private final AtomicLongArray inFlight = new AtomicLongArray(STRIPES * STRIPE_PADDING);
+    private final Object rotation = new Object();
+    private volatile boolean rotating;
+    private volatile long currentSlot;
+    private volatile long floor;
+
+    SlidingTopK(long bucketMillis, int buckets, int width, int capacity, long nowMillis) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = buckets;
+        this.width = width;
+        this.capacity = capacity;
+        this.ring = new AtomicLongArray[buckets];
+        for (int i = 0; i < buckets; i++) {
+            ring[i] = new AtomicLongArray(DEPTH * width);
+        }
+        this.total = new AtomicLongArray(DEPTH * width);
+        this.currentSlot = nowMillis / bucketMillis;
+    }
+
+    void add(TrendingKey key, long timeMillis, long count, long nowMillis) {
+
+        advance(nowMillis / bucketMillis);
+        long hash = key.hash();
+        long estimate = Long.MAX_VALUE;
+        int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_PADDING;
+        enter(stripe);
+        try {
+            long current = currentSlot;
+            long slot = Math.min(timeMillis / bucketMillis, current);
+            if (slot <= current - buckets) {
+                return;
+            }
+
+            AtomicLongArray bucket = ring[(int) Math.floorMod(slot, (long) buckets)];
+            for (int row = 0; row < DEPTH; row++) {
+                int cell = cell(hash, row);
+                bucket.addAndGet(cell, count);
+                estimate = Math.min(estimate, total.addAndGet(cell, count));
+            }
+        } finally {
+            inFlight.decrementAndGet(stripe);
+        }
+
+        if (estimate > floor && candidates.add(key) && candidates.size() > capacity * 2) {
+            prune();
+        }
+    }
+
+    List<Map.Entry<TrendingKey, Long>> top(int limit, long nowMillis) {
+
+        advance(nowMillis / bucketMillis);
+        List<Map.Entry<TrendingKey, Long>> top = estimates();
+        return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+    }
+
+    /**
+     * Оставляет capacity лучших ненулевых оценок; остальные ключи, включая остывшие до нуля, удаляются.
+     * Ключи, добавленные другими потоками после снимка, не трогаются.
+     */
+    private synchronized void prune() {
+
+        if (candidates.size() <= capacity) {
+            return;
+        }
+        List<TrendingKey> snapshot = new ArrayList<>(candidates);
+        List<Map.Entry<TrendingKey, Long>> ranked = estimates(snapshot);
+        Set<TrendingKey> kept = new HashSet<>();
+        for (Map.Entry<TrendingKey, Long> entry : ranked.subList(0, Math.min(capacity, ranked.size()))) {
+            kept.add(entry.getKey());
+        }
+        for (TrendingKey key : snapshot) {
+            if (!kept.contains(key)) {
+                candidates.remove(key);
+            }
+        }
+        floor = ranked.size() >= capacity ? ranked.get(capacity - 1).getValue() : 0;
+    }
+
+    private List<Map.Entry<TrendingKey, Long>> estimates() {
+        return estimates(candidates);
+    }
+
+    private List<Map.Entry<TrendingKey, Long>> estimates(Collection<TrendingKey> keys) {
+
+        List<Map.Entry<TrendingKey, Long>> ranked = new ArrayList<>();
+        for (TrendingKey key : keys) {
+            long estimate = estimate(key.hash());
+            if (estimate > 0) {
+                ranked.add(Map.entry(key, estimate));
+            }
+        }
+        ranked.sort(Map.Entry.<TrendingKey, Long>comparingByValue(Comparator.reverseOrder()));
+        return ranked;
+    }
+
+    private long estimate(long hash) {
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, total.get(cell(hash, row)));
+        }
+        return estimate;
+    }
+
+    private void advance(long slot) {
+
+        if (slot <= currentSlot) {
+            return;
+        }
+        synchronized (rotation) {
+            long current = currentSlot;
+            if (slot <= current) {
+                return;
+            }
+            rotating = true;
+            awaitInFlight();
+            long expired = Math.min(slot - current, buckets);
+            for (long next = slot - expired + 1; next <= slot; next++) {
+                AtomicLongArray bucket = ring[(int) Math.floorMod(next, (long) buckets)];
+                for (int cell = 0; cell < bucket.length(); cell++) {
+                    long value = bucket.getAndSet(cell, 0);
+                    if (value != 0) {
+                        total.addAndGet(cell, -value);
+                    }
+                }
+            }
+            floor = 0;
+            currentSlot = slot;
+            rotating = false;
+        }
+    }
+
+    /**
+     * Отмечает запись в полосе; если идёт сдвиг, снимает отметку и ждёт его конца.
+     * Отметка ставится до чтения rotating, а сдвиг поднимает rotating до чтения полос, поэтому хотя бы одна
+     * сторона видит другую.
+     */
+    private void enter(int stripe) {
+
+        while (true) {
+            inFlight.incrementAndGet(stripe);
+            if (!rotating) {
+                return;
+            }
+            inFlight.decrementAndGet(stripe);
+            while (rotating) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private void awaitInFlight() {
+
+        for (int stripe = 0; stripe < inFlight.length(); stripe += STRIPE_PADDING) {
+            while (inFlight.get(stripe) != 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private int cell(long hash, int row) {
+
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return row * width + Math.floorMod(h1 + row * h2, width);
+    }
+}
@@ -0,0 +1,123 @@
+package ru.practicum.trending;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.exception.StatsValidationException;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Счётчики hits по (app, uri) за последние 1m/1h/24h, только в памяти и только с момента старта.
+ * Память на окно фиксирована: (buckets + 1) * 4 * sketch-width * 8 байт плюс до 2 * top-k ключей,
+ * и не зависит от числа различных uri. Оценки Count-Min могут быть завышены, но не занижены.
+ * Hits пачки попадают в окна только после записи всей пачки (Batch.commit), так что отклонённая
+ * или откатившаяся пачка тренды не меняет.
+ */
+@Component
+public class TrendingCounters {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long granularityMillis;
+    private final long horizonMillis;
+    private final Map<TrendingWindow, SlidingTopK> windows = new EnumMap<>(TrendingWindow.class);
+
+    public TrendingCounters(@Value("${stats-server.trending.enabled:true}") boolean enabled,
+                            @Value("${stats-server.trending.sketch-width:2048}") int width,
+                            @Value("${stats-server.trending.top-k:1000}") int capacity) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        long granularity = Long.MAX_VALUE;
+        long horizon = 0;
+        for (TrendingWindow window : TrendingWindow.values()) {
+            granularity = Math.min(granularity, window.getBucket().toMillis());
+            horizon = Math.max(horizon, window.getBucket().toMillis() * window.getBuckets());
+        }
+        this.granularityMillis = granularity;
+        this.horizonMillis = horizon;
+        if (enabled) {
+            long now = System.currentTimeMillis();
+            for (TrendingWindow window : TrendingWindow.values()) {
+                windows.put(window, new SlidingTopK(window.getBucket().toMillis(), window.getBuckets(), width, capacity, now));
+            }
+        }
+    }
+
+    public void record(HitDto hitDto) {
+
+        if (enabled) {
+            add(new TrendingKey(hitDto.getApp(), hitDto.getUri()), time(hitDto), 1);
+        }
+    }
+
+    public Batch batch() {
+        return new Batch();
+    }
+
+    public List<StatsDto> findTop(TrendingWindow window, int limit) {
+
+        if (!enabled) {
+            throw new StatsValidationException("Подсчёт трендов отключён.");
+        }
+        if (limit < 1 || limit > capacity) {
+            throw new StatsValidationException("limit должен быть от 1 до " + capacity);
+        }
+
+        List<StatsDto> result = new ArrayList<>();
+        for (Map.Entry<TrendingKey, Long> entry : windows.get(window).top(limit, System.currentTimeMillis())) {
+            result.add(new StatsDto(entry.getKey().getApp(), entry.getKey().getUri(), entry.getValue()));
+        }
+        return result;
+    }
+
+    private void add(TrendingKey key, long timeMillis, long count) {
+
+        long now = System.currentTimeMillis();
+        for (SlidingTopK counter : windows.values()) {
+            counter.add(key, timeMillis, count, now);
+        }
+    }
+
+    private static long time(HitDto hitDto) {
+        return hitDto.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Счётчики пачки по (app, uri) и самой мелкой корзине окон: память зависит от числа таких пар, а не от размера пачки.
+     * Hits старше самого длинного окна (например, при загрузке истории) не учитываются совсем.
+     */
+    public class Batch {
+
+        private final Map<TrendingKey, Map<Long, Long>> counts = new HashMap<>();
+        private final long oldestMillis = System.currentTimeMillis() - horizonMillis;
+
+        public void record(HitDto hitDto) {
+
+            if (!enabled) {
+                return;
+            }
+            long time = time(hitDto);
+            if (time >= oldestMillis) {
+                counts.computeIfAbsent(new TrendingKey(hitDto.getApp(), hitDto.getUri()), key -> new HashMap<>())
+                        .merge(Math.floorDiv(time, granularityMillis), 1L, Long::sum);
+            }
+        }
+
+        public void commit() {
+
+            for (Map.Entry<TrendingKey, Map<Long, Long>> key : counts.entrySet()) {
+                for (Map.Entry<Long, Long> slot : key.getValue().entrySet()) {
+                    add(key.getKey(), slot.getKey() * granularityMillis, slot.getValue());
+                }
+            }
+            counts.clear();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ru.practicum.trending;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+
+@Value
+class TrendingKey {
+
+    String app;
+    String uri;
+
+    long hash() {
+
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, app);
+        hash = (hash ^ 0xff) * 0x100000001b3L;
+        hash = mix(hash, uri);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
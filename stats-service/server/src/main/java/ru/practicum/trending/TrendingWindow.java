@@ -0,0 +1,39 @@
+package ru.practicum.trending;
+
+import ru.practicum.exception.StatsValidationException;
+
+import java.time.Duration;
+
+public enum TrendingWindow {
+    MINUTE("1m", Duration.ofSeconds(5), 12),
+    HOUR("1h", Duration.ofMinutes(1), 60),
+    DAY("24h", Duration.ofMinutes(15), 96);
+
+    private final String name;
+    private final Duration bucket;
+    private final int buckets;
+
+    TrendingWindow(String name, Duration bucket, int buckets) {
+        this.name = name;
+        this.bucket = bucket;
+        this.buckets = buckets;
+    }
+
+    public Duration getBucket() {
+        return bucket;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public static TrendingWindow from(String name) {
+
+        for (TrendingWindow window : values()) {
+            if (window.name.equalsIgnoreCase(name)) {
+                return window;
+            }
+        }
+        throw new StatsValidationException("Неизвестное окно: " + name);
+    }
+}
@@ -1,7 +1,56 @@
+CREATE SEQUENCE IF NOT EXISTS hits_id_seq CACHE 50;
+
+CREATE TABLE IF NOT EXISTS hit_apps (
+	id 			SERIAL NOT NULL,
+	name 		VARCHAR(200) NOT NULL,
+
+	CONSTRAINT pk_hit_apps PRIMARY KEY (id),
+	CONSTRAINT uq_hit_apps_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS hit_uris (
+	id 			SERIAL NOT NULL,
+	uri 		VARCHAR(200) NOT NULL,
+
+	CONSTRAINT pk_hit_uris PRIMARY KEY (id),
+	CONSTRAINT uq_hit_uris_uri UNIQUE (uri)
+);
+
 CREATE TABLE IF NOT EXISTS hits (
-	id 			BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY NOT NULL,
+	id 			BIGINT DEFAULT nextval('hits_id_seq') NOT NULL,
+	app_id 		INTEGER NOT NULL,
+	uri_id 		INTEGER NOT NULL,
+	ip 			INET NOT NULL,
+	time_stamp	TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+
+	CONSTRAINT pk_hits PRIMARY KEY (id, time_stamp)
+) PARTITION BY RANGE (time_stamp);
+
+CREATE INDEX IF NOT EXISTS hits_time_stamp_brin_idx ON hits USING BRIN (time_stamp);
+
+CREATE TABLE IF NOT EXISTS hit_rollups (
+	granularity	VARCHAR(10) NOT NULL,
+	bucket_start	TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+	app 		VARCHAR(200) NOT NULL,
+	uri 		VARCHAR(200) NOT NULL,
+	hits 		BIGINT NOT NULL,
+
+	CONSTRAINT pk_hit_rollups PRIMARY KEY (granularity, bucket_start, app, uri)
+);
+
+CREATE TABLE IF NOT EXISTS hit_aggregates (
+	name 		VARCHAR(20) NOT NULL,
+	consistent	BOOLEAN NOT NULL,
+
+	CONSTRAINT pk_hit_aggregates PRIMARY KEY (name)
+);
+
+CREATE TABLE IF NOT EXISTS hit_sketches (
+	granularity	VARCHAR(10) NOT NULL,
+	bucket_start	TIMESTAMP WITHOUT TIME ZONE NOT NULL,
 	app 		VARCHAR(200) NOT NULL,
 	uri 		VARCHAR(200) NOT NULL,
-	ip 			VARCHAR(50) NOT NULL,
-	time_stamp	TIMESTAMP WITHOUT TIME ZONE NOT NULL
-);
\ No newline at end of file
+	sketch 		BYTEA NOT NULL,
+
+	CONSTRAINT pk_hit_sketches PRIMARY KEY (granularity, bucket_start, app, uri)
+);
@@ -0,0 +1,264 @@
+package ru.practicum.storage;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.StatsServerApp;
+import ru.practicum.rollup.HyperLogLog;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Одинаковое поведение HitStorage через HTTP API для обоих хранилищ: приём одиночных hits, пачек JSON и NDJSON,
+ * /stats по всем hits, уникальным ip (точно и оценкой HyperLogLog), uri и диапазону времени, отказ на некорректный ip
+ * и сохранность после перезапуска.
+ * Приложение поднимается один раз на класс, поэтому каждый тест пишет hits своего app и смотрит только на них.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+abstract class HitStorageContractTest {
+
+    protected static final String FROM = "2020-01-01 00:00:00";
+    protected static final String TO = "2030-01-01 00:00:00";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private String baseUrl;
+
+    /**
+     * Свойства хранилища: stats-server.storage.type и всё, что нужно ему для перезапуска на тех же данных.
+     */
+    protected abstract List<String> storageArgs();
+
+    @BeforeAll
+    void start() throws IOException {
+
+        postgres = EmbeddedPostgres.builder().start();
+        startApp(List.of());
+    }
+
+    @AfterAll
+    void stop() throws IOException {
+
+        context.close();
+        postgres.close();
+    }
+
+    @Test
+    void singleHitsAreCounted() throws Exception {
+
+        assertThat(post("/hit", "application/json", hit("single", "/events/1", "10.0.0.1", "2025-03-10 10:00:00"))).isEqualTo(201);
+        assertThat(post("/hit", "application/json", hit("single", "/events/1", "10.0.0.1", "2025-03-10 10:00:01"))).isEqualTo(201);
+        assertThat(post("/hit", "application/json", hit("single", "/events/1", "::1", "2025-03-10 10:00:02"))).isEqualTo(201);
+
+        assertThat(stats("single", FROM, TO, null, false)).isEqualTo(Map.of("/events/1", 3L));
+        assertThat(stats("single", FROM, TO, null, true)).isEqualTo(Map.of("/events/1", 2L));
+    }
+
+    @Test
+    void jsonBatchIsCounted() throws Exception {
+
+        assertThat(post("/hits/batch", "application/json", "[" + String.join(",",
+                hit("json", "/events", "10.0.0.1", "2025-03-10 10:00:00"),
+                hit("json", "/events", "10.0.0.2", "2025-03-10 11:00:00"),
+                hit("json", "/events/2", "10.0.0.1", "2025-03-10 12:00:00")) + "]")).isEqualTo(201);
+
+        assertThat(stats("json", FROM, TO, null, false)).isEqualTo(Map.of("/events", 2L, "/events/2", 1L));
+    }
+
+    @Test
+    void ndjsonBatchIsCounted() throws Exception {
+
+        assertThat(post("/hits/batch", "application/x-ndjson", String.join("\n",
+                hit("ndjson", "/events", "10.0.0.1", "2025-03-10 10:00:00"),
+                "",
+                hit("ndjson", "/events", "2001:db8::1", "2025-03-10 11:00:00"),
+                hit("ndjson", "/events/3", "10.0.0.1", "2025-03-10 12:00:00")) + "\n")).isEqualTo(201);
+
+        assertThat(stats("ndjson", FROM, TO, null, false)).isEqualTo(Map.of("/events", 2L, "/events/3", 1L));
+    }
+
+    @Test
+    void statsFilterByUniqueIpUrisAndTime() throws Exception {
+
+        List<String> hits = new ArrayList<>();
+        hits.add(hit("filters", "/events/1", "10.0.0.1", "2025-03-10 09:59:59"));
+        hits.add(hit("filters", "/events/1", "10.0.0.1", "2025-03-10 10:00:00"));
+        hits.add(hit("filters", "/events/1", "10.0.0.2", "2025-03-10 11:30:00"));
+        hits.add(hit("filters", "/events/1", "10.0.0.3", "2025-03-11 12:30:00"));
+        hits.add(hit("filters", "/events/1", "10.0.0.3", "2025-03-11 12:30:01"));
+        hits.add(hit("filters", "/events/2", "10.0.0.1", "2025-03-11 12:30:00"));
+        assertThat(post("/hits/batch", "application/json", "[" + String.join(",", hits) + "]")).isEqualTo(201);
+
+        assertThat(stats("filters", FROM, TO, null, false)).isEqualTo(Map.of("/events/1", 5L, "/events/2", 1L));
+        assertThat(stats("filters", FROM, TO, null, true)).isEqualTo(Map.of("/events/1", 3L, "/events/2", 1L));
+        assertThat(stats("filters", FROM, TO, List.of("/events/2", "/events/404"), false)).isEqualTo(Map.of("/events/2", 1L));
+        assertThat(stats("filters", "2025-03-10 10:00:00", "2025-03-11 12:30:00", null, false))
+                .isEqualTo(Map.of("/events/1", 3L, "/events/2", 1L));
+        assertThat(stats("filters", "2025-03-10 10:00:00", "2025-03-11 12:30:00", List.of("/events/1"), true))
+                .isEqualTo(Map.of("/events/1", 3L));
+        assertThat(stats("filters", "2025-03-12 00:00:00", TO, null, false)).isEmpty();
+    }
+
+    @Test
+    void statsAcceptLongUriListInPostBody() throws Exception {
+
+        assertThat(post("/hits/batch", "application/json", "[" + String.join(",",
+                hit("post", "/events/1999", "10.0.0.1", "2025-03-10 10:00:00"),
+                hit("post", "/events/1999", "10.0.0.2", "2025-03-10 11:00:00"),
+                hit("post", "/events/2000", "10.0.0.1", "2025-03-10 12:00:00")) + "]")).isEqualTo(201);
+
+        List<String> uris = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            uris.add("\"/events/" + i + "\"");
+        }
+        String body = "{\"start\":\"" + FROM + "\",\"end\":\"" + TO + "\",\"unique\":true,\"uris\":[" + String.join(",", uris) + "]}";
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/stats"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(byUri("post", response.body())).isEqualTo(Map.of("/events/1999", 2L));
+    }
+
+    @Test
+    void approximateUniqueIsHyperLogLogEstimate() throws Exception {
+
+        List<String> hits = new ArrayList<>();
+        HyperLogLog expected = new HyperLogLog();
+        for (int i = 0; i < 2000; i++) {
+            String ip = "10.0." + i / 256 + "." + i % 256;
+            expected.add(ip);
+            hits.add(hit("approximate", "/events", ip, "2025-03-1" + i % 3 + " 1" + i % 10 + ":00:00"));
+            hits.add(hit("approximate", "/events", ip, "2025-03-13 00:00:00"));
+        }
+        assertThat(post("/hits/batch", "application/json", "[" + String.join(",", hits) + "]")).isEqualTo(201);
+
+        assertThat(stats("approximate", FROM, TO, null, true, false)).isEqualTo(Map.of("/events", 2000L));
+        assertThat(stats("approximate", FROM, TO, null, true, true)).isEqualTo(Map.of("/events", expected.estimate()));
+    }
+
+    @Test
+    void invalidIpRejectsWholeRequest() throws Exception {
+
+        assertThat(post("/hit", "application/json", hit("invalid", "/events", "not-an-ip", "2025-03-10 10:00:00"))).isEqualTo(400);
+        assertThat(post("/hits/batch", "application/json", "[" + String.join(",",
+                hit("invalid", "/events", "10.0.0.1", "2025-03-10 10:00:00"),
+                hit("invalid", "/events", "10.0.0.256", "2025-03-10 10:00:01")) + "]")).isEqualTo(400);
+        assertThat(post("/hits/batch", "application/x-ndjson", String.join("\n",
+                hit("invalid", "/events", "10.0.0.1", "2025-03-10 10:00:00"),
+                hit("invalid", "/events", "10.0.0.2", "2025-03-10 10:00:01"),
+                hit("invalid", "/events", "example.com", "2025-03-10 10:00:02")))).isEqualTo(400);
+
+        assertThat(stats("invalid", FROM, TO, null, false)).isEmpty();
+    }
+
+    @Test
+    void hitsSurviveRestart() throws Exception {
+
+        assertThat(post("/hits/batch", "application/json", "[" + String.join(",",
+                hit("restart", "/events", "10.0.0.1", "2025-03-10 10:00:00"),
+                hit("restart", "/events", "10.0.0.2", "2025-03-10 10:00:01")) + "]")).isEqualTo(201);
+
+        restart();
+
+        assertThat(stats("restart", FROM, TO, null, false)).isEqualTo(Map.of("/events", 2L));
+        assertThat(post("/hit", "application/json", hit("restart", "/events", "10.0.0.1", "2025-03-10 10:00:02"))).isEqualTo(201);
+        assertThat(stats("restart", FROM, TO, null, false)).isEqualTo(Map.of("/events", 3L));
+        assertThat(stats("restart", FROM, TO, null, true)).isEqualTo(Map.of("/events", 2L));
+    }
+
+    /**
+     * Перезапускает приложение на тех же данных, extraArgs добавляются к свойствам хранилища.
+     */
+    protected void restart(String... extraArgs) {
+
+        context.close();
+        startApp(List.of(extraArgs));
+    }
+
+    private void startApp(List<String> extraArgs) {
+
+        List<String> args = new ArrayList<>(storageArgs());
+        args.addAll(extraArgs);
+        args.add("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"));
+        args.add("--spring.datasource.username=postgres");
+        args.add("--spring.datasource.password=");
+        args.add("--server.port=0");
+        context = new SpringApplicationBuilder(StatsServerApp.class).run(args.toArray(new String[0]));
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    protected int post(String path, String contentType, String body) throws Exception {
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    protected Map<String, Long> stats(String app, String start, String end, List<String> uris, boolean unique) throws Exception {
+        return stats(app, start, end, uris, unique, false);
+    }
+
+    /**
+     * Hits по uri из ответа /stats, только для app теста.
+     */
+    protected Map<String, Long> stats(String app, String start, String end, List<String> uris, boolean unique,
+                                    boolean approximate) throws Exception {
+
+        StringBuilder query = new StringBuilder("/stats?start=").append(encode(start))
+                .append("&end=").append(encode(end))
+                .append("&unique=").append(unique)
+                .append("&approximate=").append(approximate);
+        if (uris != null) {
+            for (String uri : uris) {
+                query.append("&uris=").append(encode(uri));
+            }
+        }
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + query)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(200);
+        return byUri(app, response.body());
+    }
+
+    private Map<String, Long> byUri(String app, String body) throws IOException {
+
+        Map<String, Long> result = new TreeMap<>();
+        for (Map<String, Object> stats : objectMapper.readValue(body, new TypeReference<List<Map<String, Object>>>() { })) {
+            if (app.equals(stats.get("app"))) {
+                result.put((String) stats.get("uri"), ((Number) stats.get("hits")).longValue());
+            }
+        }
+        return result;
+    }
+
+    protected static String hit(String app, String uri, String ip, String timestamp) {
+        return "{\"app\":\"" + app + "\",\"uri\":\"" + uri + "\",\"ip\":\"" + ip + "\",\"timestamp\":\"" + timestamp + "\"}";
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
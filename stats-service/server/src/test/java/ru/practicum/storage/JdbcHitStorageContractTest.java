@@ -0,0 +1,70 @@
+package ru.practicum.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.rollup.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.practicum.Util.FORMATTER;
+
+class JdbcHitStorageContractTest extends HitStorageContractTest {
+
+    @Override
+    protected List<String> storageArgs() {
+        return List.of("--stats-server.storage.type=jdbc");
+    }
+
+    /**
+     * Hits, принятые с выключенными скетчами, попадают в hit_sketches при пересборке по дням на следующем старте.
+     */
+    @Test
+    void sketchesAreRebuiltAfterBeingDisabled() throws Exception {
+
+        restart("--stats-server.sketch.enabled=false");
+        List<String> hits = new ArrayList<>();
+        HyperLogLog expected = new HyperLogLog();
+        HyperLogLog expectedDay = new HyperLogLog();
+        for (int i = 0; i < 500; i++) {
+            String ip = "10.1." + i / 256 + "." + i % 256;
+            expected.add(ip);
+            if (i % 5 == 1) {
+                expectedDay.add(ip);
+            }
+            hits.add(hit("rebuild", "/events", ip, "2025-03-1" + i % 5 + " 2" + i % 4 + ":00:00"));
+        }
+        assertThat(post("/hits/batch", "application/json", "[" + String.join(",", hits) + "]")).isEqualTo(201);
+
+        restart();
+
+        assertThat(stats("rebuild", FROM, TO, null, true, true)).isEqualTo(Map.of("/events", expected.estimate()));
+        assertThat(stats("rebuild", "2025-03-11 00:00:00", "2025-03-12 00:00:00", null, true, true))
+                .isEqualTo(Map.of("/events", expectedDay.estimate()));
+    }
+
+    /**
+     * Срок хранения убирает старые hits из hits_default, hit_rollups и hit_sketches одновременно,
+     * поэтому /stats по агрегатам и по hits совпадают.
+     */
+    @Test
+    void retentionDropsOldHitsFromAggregatesToo() throws Exception {
+
+        String recent = LocalDateTime.now().minusHours(1).format(FORMATTER);
+        assertThat(post("/hits/batch", "application/json", "[" + String.join(",",
+                hit("retention", "/events", "10.2.0.1", "2025-03-10 10:00:00"),
+                hit("retention", "/events", "10.2.0.2", "2025-03-10 11:00:00"),
+                hit("retention", "/events", "10.2.0.3", recent)) + "]")).isEqualTo(201);
+
+        restart("--stats-server.partitions.retention=1");
+        try {
+            assertThat(stats("retention", FROM, TO, null, false)).isEqualTo(Map.of("/events", 1L));
+            assertThat(stats("retention", FROM, TO, null, true)).isEqualTo(Map.of("/events", 1L));
+            assertThat(stats("retention", FROM, TO, null, true, true)).isEqualTo(Map.of("/events", 1L));
+        } finally {
+            restart();
+        }
+    }
+}
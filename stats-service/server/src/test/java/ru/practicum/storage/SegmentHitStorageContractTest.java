@@ -0,0 +1,68 @@
+package ru.practicum.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentHitStorageContractTest extends HitStorageContractTest {
+
+    @TempDir
+    static Path dir;
+
+    @Override
+    protected List<String> storageArgs() {
+        return List.of("--stats-server.storage.type=segment",
+                "--stats-server.storage.segment.dir=" + dir,
+                "--stats-server.storage.segment.rows=4");
+    }
+
+    /**
+     * Пачка на три сегмента, второй из которых не создаётся (на месте его файла каталог): первый новый сегмент
+     * удаляется, прежний обрезается до своих строк, и ни один hit пачки не виден ни сразу, ни после перезапуска.
+     */
+    @Test
+    void batchFailingAfterRolloverLeavesNoHits() throws Exception {
+
+        int segments = countSegments();
+        Path blocker = dir.resolve(String.format("segment-%010d.col", segments + 1));
+        Files.createDirectory(blocker);
+
+        List<String> hits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            hits.add(hit("rollover", "/events", "10.3.0." + i, "2025-03-10 10:00:0" + i));
+        }
+        try {
+            assertThat(post("/hits/batch", "application/json", "[" + String.join(",", hits) + "]")).isEqualTo(500);
+        } finally {
+            Files.deleteIfExists(blocker);
+        }
+
+        assertThat(stats("rollover", FROM, TO, null, false)).isEmpty();
+        assertThat(countSegments()).isEqualTo(segments);
+
+        assertThat(post("/hits/batch", "application/json", "[" + String.join(",", hits.subList(0, 3)) + "]")).isEqualTo(201);
+        restart();
+
+        assertThat(stats("rollover", FROM, TO, null, false)).isEqualTo(Map.of("/events", 3L));
+    }
+
+    private static int countSegments() throws IOException {
+
+        int count = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "segment-*.col")) {
+            for (Path ignored : stream) {
+                count++;
+            }
+        }
+        return count;
+    }
+}